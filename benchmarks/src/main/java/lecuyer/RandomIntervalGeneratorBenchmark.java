@@ -0,0 +1,89 @@
+package lecuyer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulation.Simulation;
+
+/**
+ * JMH benchmarks of RandomIntervalGenerator.generateNewRandomInterval() with the send intervals
+ * of the simulation clients, for every RandomSourceType.<br>
+ * The contended benchmark shares one generator between RngStreamBenchmark.CONTENDED_THREADS threads.
+ * @author Marten Sigwart
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomIntervalGeneratorBenchmark {
+
+	private static final SeedManager 	SEEDS 		= new SeedManager();
+	private static final AtomicInteger 	nextClient 	= new AtomicInteger();		//every thread gets its own substream
+
+	static RandomIntervalGenerator createGenerator(RandomSourceType type, int client) {
+		return new RandomIntervalGenerator(SEEDS.createSource(type, 0, client),
+				Simulation.CLIENT_SEND_MIN_INTERVAL, Simulation.CLIENT_SEND_MAX_INTERVAL);
+	}//createGenerator
+
+	/**
+	 * Generator of a single thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadGenerator {
+		@Param({"MRG32K3A", "MRG32K3A_LONG", "SPLITMIX64", "XOROSHIRO128PLUS"})
+		RandomSourceType source;
+
+		RandomIntervalGenerator generator;
+
+		@Setup
+		public void setup() {
+			generator = createGenerator(source, nextClient.getAndIncrement());
+		}//setup
+	}//ThreadGenerator
+
+	/**
+	 * Generator shared by all threads of a benchmark
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedGenerator {
+		@Param({"MRG32K3A", "MRG32K3A_LONG", "SPLITMIX64", "XOROSHIRO128PLUS"})
+		RandomSourceType source;
+
+		RandomIntervalGenerator generator;
+
+		@Setup
+		public void setup() {
+			generator = createGenerator(source, 0);
+		}//setup
+	}//SharedGenerator
+
+
+	@Benchmark
+	public int generateNewRandomInterval(ThreadGenerator g) {
+		return g.generator.generateNewRandomInterval();
+	}//generateNewRandomInterval
+
+	@Benchmark
+	@Threads(RngStreamBenchmark.CONTENDED_THREADS)
+	public int generateNewRandomIntervalContended(SharedGenerator g) {
+		synchronized (g.generator) {
+			return g.generator.generateNewRandomInterval();
+		}//synchronized
+	}//generateNewRandomIntervalContended
+
+}//RandomIntervalGeneratorBenchmark
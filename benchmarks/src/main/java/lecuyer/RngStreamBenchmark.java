@@ -0,0 +1,137 @@
+package lecuyer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of RngStream.<br>
+ * The single threaded benchmarks use one stream per thread, as every client of the simulation does.
+ * The contended benchmarks share one stream between CONTENDED_THREADS threads,
+ * every call is synchronized on the stream because RngStream is not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RngStreamBenchmark {
+
+	public static final int CONTENDED_THREADS = 4;
+
+	/**
+	 * Stream of a single thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadStream {
+		RngStream stream;
+
+		@Setup
+		public void setup() {
+			stream = new RngStream();
+		}//setup
+	}//ThreadStream
+
+	/**
+	 * Stream shared by all threads of a benchmark
+	 */
+	@State(Scope.Benchmark)
+	public static class SharedStream {
+		RngStream stream;
+
+		@Setup
+		public void setup() {
+			stream = new RngStream();
+		}//setup
+	}//SharedStream
+
+	/**
+	 * Arguments of advanceState(e, c), the stream is advanced by 2^e + c steps
+	 */
+	@State(Scope.Benchmark)
+	public static class Jump {
+		@Param({"0", "76", "127"})
+		int e;
+
+		@Param({"3"})
+		int c;
+	}//Jump
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Single threaded
+
+	@Benchmark
+	public double randU01(ThreadStream s) {
+		return s.stream.randU01();
+	}//randU01
+
+	@Benchmark
+	public int randInt(ThreadStream s) {
+		return s.stream.randInt(10, 2500);
+	}//randInt
+
+	@Benchmark
+	public double[] resetNextSubstream(ThreadStream s) {
+		s.stream.resetNextSubstream();
+		return s.stream.getState();
+	}//resetNextSubstream
+
+	@Benchmark
+	public double[] advanceState(ThreadStream s, Jump j) {
+		s.stream.advanceState(j.e, j.c);
+		return s.stream.getState();
+	}//advanceState
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Contended, one stream for all threads
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public double randU01Contended(SharedStream s) {
+		synchronized (s.stream) {
+			return s.stream.randU01();
+		}//synchronized
+	}//randU01Contended
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public int randIntContended(SharedStream s) {
+		synchronized (s.stream) {
+			return s.stream.randInt(10, 2500);
+		}//synchronized
+	}//randIntContended
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public double resetNextSubstreamContended(SharedStream s) {
+		synchronized (s.stream) {
+			s.stream.resetNextSubstream();
+			return s.stream.getState()[0];
+		}//synchronized
+	}//resetNextSubstreamContended
+
+	@Benchmark
+	@Threads(CONTENDED_THREADS)
+	public double advanceStateContended(SharedStream s, Jump j) {
+		synchronized (s.stream) {
+			s.stream.advanceState(j.e, j.c);
+			return s.stream.getState()[0];
+		}//synchronized
+	}//advanceStateContended
+
+}//RngStreamBenchmark
@@ -0,0 +1,193 @@
+package simulation;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import statistics.Statistics;
+
+/**
+ * JMH harness for the queues of the SendConnection: producer threads call SendConnection.enqueuePacket()
+ * like clients, one consumer thread calls dequeueNextPacket() like the SendConnection thread.<br>
+ * Reports the throughput and the latency percentiles (SampleTime) of both operations for every QueueType.
+ * Statistics are collected inline, so no trace is written. Packets which are dropped because the queue
+ * is full are counted in "dropped", the message of the SendConnection is discarded.<br>
+ * The number of producers is set with -tg producers,1. main() runs all QueueTypes for 1 to 64 producers:<br>
+ * java -cp target/benchmarks.jar simulation.SendConnectionBenchmark [JMH options]
+ * @author Marten Sigwart
+ *
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendConnectionBenchmark {
+
+	public static final int[] 	PRODUCERS 	= {1, 2, 4, 8, 16, 32, 64};
+	public static final int 	QUEUE_SIZE 	= 1 << 16;
+
+	private static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}//write
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}//write
+	});
+
+
+	/**
+	 * SendConnection shared by the producers and the consumer
+	 */
+	@State(Scope.Group)
+	public static class Connection {
+		@Param({"RING_BUFFER", "CONCURRENT_LINKED", "ARRAY_BLOCKING"})
+		QueueType 		queueType;
+
+		@Param({"0"})
+		int 			producerWork;		//Blackhole.consumeCPU() tokens between two packets of a producer
+
+		SendConnection 	connection;
+		PrintStream 	out;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Statistics stats = new Statistics("SendConnectionBenchmark.txt");
+			stats.setInlineStatistics(true);
+			connection 	= new SendConnection(1, SendConnection.DEFAULT_CONNECTION_SPEED, QUEUE_SIZE, queueType, stats, null);
+			out 		= System.out;
+			System.setOut(NULL_OUT);
+		}//setup
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			System.setOut(out);
+		}//tearDown
+	}//Connection
+
+	/**
+	 * A client, every fourth producer sends priority packets
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Producer {
+		public long dropped;			//packets per time unit which did not fit into the queue
+
+		Priority 	priority;
+		int 		nextId;
+
+		@Setup(Level.Trial)
+		public void setup(ThreadParams threadParams) {
+			int index 	= threadParams.getSubgroupThreadIndex();
+			priority 	= (index % 4 == 0) ? Priority.PACKET_PRIORITY_HIGH : Priority.PACKET_PRIORITY_LOW;
+			nextId 		= index << 24;
+		}//setup
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			dropped = 0L;
+		}//reset
+	}//Producer
+
+
+	@Benchmark
+	@Group("queue")
+	@GroupThreads(1)
+	public boolean enqueue(Connection c, Producer p) {
+		if (c.producerWork > 0) {
+			Blackhole.consumeCPU(c.producerWork);
+		}//if
+		boolean success = c.connection.enqueuePacket(new Packet(p.nextId++, p.priority), p.priority);
+		if (!success) {
+			p.dropped++;
+		}//if
+		return success;
+	}//enqueue
+
+	/**
+	 * Includes polls of empty queues
+	 */
+	@Benchmark
+	@Group("queue")
+	@GroupThreads(1)
+	public Packet dequeue(Connection c) {
+		return c.connection.dequeueNextPacket();
+	}//dequeue
+
+
+	/**
+	 * Runs the benchmark for every number of producers in PRODUCERS and prints a summary
+	 * @param args JMH command line options
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("%9s  %-17s  %-12s  %12s  %12s  %10s  %10s  %10s  %10s\n", "Producers", "Queue type", "Operation",
+				"ops/us", "dropped/s", "p50 us", "p99 us", "p99.9 us", "max us"));
+
+		for (int producers: PRODUCERS) {
+			Options options = new OptionsBuilder()
+					.parent(commandLine)
+					.include(SendConnectionBenchmark.class.getName() + ".queue")
+					.threadGroups(producers, 1)
+					.build();
+			Collection<RunResult> results = new Runner(options).run();
+			for (RunResult result: results) {
+				appendSummary(summary, producers, result);
+			}//for
+		}//for
+		System.out.println();
+		System.out.print(summary);
+	}//main
+
+	private static void appendSummary(StringBuilder summary, int producers, RunResult result) {
+		String queueType 	= result.getParams().getParam("queueType");
+		Mode mode 			= result.getParams().getMode();
+		for (String operation: new String[] {"enqueue", "dequeue"}) {
+			Result<?> r = result.getSecondaryResults().get(operation);
+			if (r == null) {
+				continue;
+			}//if
+			if (mode == Mode.Throughput) {
+				Result<?> dropped = result.getSecondaryResults().get("dropped");
+				summary.append(String.format("%9d  %-17s  %-12s  %12.3f  %12s\n", producers, queueType, operation, r.getScore(),
+						(operation.equals("enqueue") && dropped != null) ? String.format("%.0f", dropped.getScore()*1e6) : ""));
+			} else if (mode == Mode.SampleTime) {
+				summary.append(String.format("%9d  %-17s  %-12s  %12s  %12s  %10.3f  %10.3f  %10.3f  %10.3f\n", producers, queueType, operation, "", "",
+						r.getStatistics().getPercentile(50), r.getStatistics().getPercentile(99),
+						r.getStatistics().getPercentile(99.9), r.getStatistics().getMax()));
+			}//if
+		}//for
+	}//appendSummary
+
+}//SendConnectionBenchmark
@@ -0,0 +1,184 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import lecuyer.SplitMix64;
+import simulation.Priority;
+import simulation.Simulation;
+import simulation.Time;
+
+/**
+ * Generates the events of a synthetic simulation run for the trace analysis benchmarks.<br>
+ * Packets arrive at uniformly distributed intervals with a random priority and are sent in arrival order,
+ * one every Simulation.MICSECONDS_PER_PACKET, so the server is busy UTILIZATION of the time.
+ * Events are returned in time order like from a trace file, the same seed gives the same events.
+ * @author Marten Sigwart
+ *
+ */
+public class SyntheticTrace implements TraceReader {
+
+	public static final long 	DEFAULT_SEED 		= 12345L;
+	public static final double 	UTILIZATION 		= 0.9;
+	public static final double 	HIGH_PRIORITY_SHARE = 0.25;
+
+	private static final long 	START_TIME 			= 1000000000L;		//nanoseconds
+
+	private final SplitMix64 	random;
+	private final long 			events;				//number of events, Long.MAX_VALUE for an endless trace
+	private final long 			serviceTime;		//nanoseconds per packet
+	private final double 		maxInterval;		//nanoseconds between two arrivals
+
+	private long 		generated;
+	private long 		nextArrival;
+	private long 		serverFree;					//dequeue time of the last packet
+	private int 		nextPacketId;
+
+	// Packets in the queue, ring buffer in arrival order
+	private int[] 		queueIds;
+	private long[] 		queueTimes;					//dequeue times
+	private Priority[] 	queuePriorities;
+	private int 		queueHead;
+	private int 		queueSize;
+
+	// Current event
+	private int 		eventType;
+	private Priority 	priority;
+	private int 		packetId;
+	private long 		time;
+
+
+	/**
+	 * Creates an endless trace
+	 */
+	public SyntheticTrace() {
+		this(Long.MAX_VALUE, DEFAULT_SEED);
+	}//Constructor
+
+	/**
+	 * Creates a trace
+	 * @param events the number of events of the trace
+	 * @param seed seed of the random intervals and priorities
+	 */
+	public SyntheticTrace(long events, long seed) {
+		this.random 		= new SplitMix64(seed);
+		this.events 		= events;
+		this.serviceTime 	= (long)(Simulation.MICSECONDS_PER_PACKET*Time.NANOSEC_PER_MICROSEC);
+		this.maxInterval 	= 2.0*serviceTime/UTILIZATION;
+		this.generated 		= 0L;
+		this.nextArrival 	= START_TIME;
+		this.serverFree 	= START_TIME;
+		this.nextPacketId 	= 0;
+		this.queueIds 		= new int[1024];
+		this.queueTimes 	= new long[1024];
+		this.queuePriorities = new Priority[1024];
+		this.queueHead 		= 0;
+		this.queueSize 		= 0;
+	}//Constructor
+
+
+	/**
+	 * Writes a trace into a new temporary file
+	 * @param format the format of the file
+	 * @param events the number of events
+	 * @return the path of the file, to be deleted by the caller
+	 */
+	public static Path createFile(TraceFormat format, long events) throws IOException {
+		Path file = Files.createTempFile("trace", (format == TraceFormat.BINARY) ? ".bin" : ".txt");
+		TraceWriter writer;
+		switch (format) {
+			case BINARY:
+				writer = new BinaryTraceWriter(file.toString(), new TraceHeader());
+				break;
+			default:
+				writer = new TextTraceWriter(file.toString());
+				break;
+		}//switch
+		SyntheticTrace trace = new SyntheticTrace(events, DEFAULT_SEED);
+		while (trace.next()) {
+			writer.writeEvent(trace.getEventType(), trace.getPriority(), trace.getPacketId(), trace.getTime());
+		}//while
+		writer.close();
+		return file;
+	}//createFile
+
+
+	@Override
+	public boolean next() {
+		if (generated == events) {
+			return false;
+		}//if
+		generated++;
+
+		int head = queueHead & (queueIds.length - 1);
+		if (queueSize > 0 && queueTimes[head] <= nextArrival) {
+			// DEQUEUE of the first packet in the queue
+			eventType 	= Event.EVENT_TYPE_DEQUEUE;
+			packetId 	= queueIds[head];
+			priority 	= queuePriorities[head];
+			time 		= queueTimes[head];
+			queueHead++;
+			queueSize--;
+			return true;
+		}//if
+
+		// ENQUEUE of the next packet
+		eventType 	= Event.EVENT_TYPE_ENQUEUE;
+		packetId 	= nextPacketId++;
+		priority 	= (random.randU01() < HIGH_PRIORITY_SHARE) ? Priority.PACKET_PRIORITY_HIGH : Priority.PACKET_PRIORITY_LOW;
+		time 		= nextArrival;
+		serverFree 	= Math.max(serverFree, time) + serviceTime;
+		if (queueSize == queueIds.length) {
+			growQueue();
+		}//if
+		int tail = (queueHead + queueSize) & (queueIds.length - 1);
+		queueIds[tail] 			= packetId;
+		queueTimes[tail] 		= serverFree;
+		queuePriorities[tail] 	= priority;
+		queueSize++;
+		nextArrival += (long)(random.randU01()*maxInterval);
+		return true;
+	}//next
+
+	private void growQueue() {
+		int[] ids 				= new int[2*queueIds.length];
+		long[] times 			= new long[2*queueIds.length];
+		Priority[] priorities 	= new Priority[2*queueIds.length];
+		for (int i=0; i<queueSize; i++) {
+			int j = (queueHead + i) & (queueIds.length - 1);
+			ids[i] 			= queueIds[j];
+			times[i] 		= queueTimes[j];
+			priorities[i] 	= queuePriorities[j];
+		}//for
+		queueIds 		= ids;
+		queueTimes 		= times;
+		queuePriorities = priorities;
+		queueHead 		= 0;
+	}//growQueue
+
+	@Override
+	public int getEventType() {
+		return eventType;
+	}//getEventType
+
+	@Override
+	public Priority getPriority() {
+		return priority;
+	}//getPriority
+
+	@Override
+	public int getPacketId() {
+		return packetId;
+	}//getPacketId
+
+	@Override
+	public long getTime() {
+		return time;
+	}//getTime
+
+	@Override
+	public void close() {
+	}//close
+
+}//SyntheticTrace
@@ -0,0 +1,361 @@
+package statistics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulation.Priority;
+import simulation.Simulation;
+import simulation.Time;
+
+/**
+ * JMH benchmarks of the stages of the trace analysis (Statistics.collectStatistics()) on synthetic traces
+ * (see SyntheticTrace).<br>
+ * Every invocation processes CHUNK events and continues where the previous one stopped, the trace is read
+ * again from the start when its end is reached. Scores are events per second. Run with "-prof gc",
+ * gc.alloc.rate.norm is the allocation per event in bytes.<br>
+ * The trace size is set with -p events=..., traces of 10^8 events need about 6 GB (text) or 1.6 GB (binary)
+ * of temporary disk space. The progress output of Statistics is discarded while the benchmarks run.
+ * @author Marten Sigwart
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraceAnalysisBenchmark {
+
+	public static final int CHUNK 		= 10000;		//events per invocation
+	public static final int LINE_POOL 	= 1 << 16;		//distinct lines of the parse benchmark
+	public static final int DELAY_COUNT = 1 << 23;		//queue times of the summary benchmarks (64 MB, not cached)
+
+	// Delays for which Statistics calculates the delayed packets by default
+	static final int[] DELAYS = {Statistics.DEFAULT_DELAY,
+								 (int)(Simulation.MICSECONDS_PER_PACKET*1.1),
+								 (int)(Simulation.MICSECONDS_PER_PACKET*1.5),
+								 (int)(Simulation.MICSECONDS_PER_PACKET*4)};
+
+	private static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+		@Override
+		public void write(int b) {
+		}//write
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}//write
+	});
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// States
+
+	/**
+	 * Text lines of a synthetic trace
+	 */
+	@State(Scope.Benchmark)
+	public static class Lines {
+		String[] 	lines;
+		int 		next;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			lines = new String[LINE_POOL];
+			SyntheticTrace trace = new SyntheticTrace();
+			for (int i=0; i<LINE_POOL; i++) {
+				trace.next();
+				lines[i] = Event.toString(trace.getEventType(), trace.getTime(), trace.getPacketId(), trace.getPriority());
+			}//for
+			next = 0;
+		}//setup
+
+		String nextLine() {
+			return lines[next++ & (LINE_POOL - 1)];
+		}//nextLine
+	}//Lines
+
+	/**
+	 * Trace file and the readers of the file
+	 */
+	@State(Scope.Benchmark)
+	public static class TraceFile {
+		@Param({"100000", "1000000"})
+		long 		events;
+
+		@Param({"TEXT", "BINARY"})
+		TraceFormat format;
+
+		Path 		file;
+		TraceReader reader;
+		Statistics 	statistics;
+		PrintStream out;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			file 		= SyntheticTrace.createFile(format, events);
+			reader 		= openReader();
+			statistics 	= new Statistics(file.toString(), format);
+			statistics.openTraceReader();
+			out 		= System.out;
+			System.setOut(NULL_OUT);
+		}//setup
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			System.setOut(out);
+			reader.close();
+			Files.delete(file);
+		}//tearDown
+
+		TraceReader openReader() throws IOException {
+			switch (format) {
+				case BINARY:
+					return new BinaryTraceReader(file.toString());
+				default:
+					return new MappedTextTraceReader(file.toString());
+			}//switch
+		}//openReader
+
+		/**
+		 * Moves the reader to the next event, at the end of the trace to the first event
+		 */
+		TraceReader nextEvent() throws IOException {
+			if (!reader.next()) {
+				reader.close();
+				reader = openReader();
+				reader.next();
+			}//if
+			return reader;
+		}//nextEvent
+	}//TraceFile
+
+	/**
+	 * Event lists and the next CHUNK events of an endless synthetic trace
+	 */
+	@State(Scope.Benchmark)
+	public static class Chunk {
+		SyntheticTrace 					trace;
+		EnumMap<Priority, EventList> 	eventLists;
+		EventStore 						events;
+		PrintStream 					out;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			trace 		= new SyntheticTrace();
+			eventLists 	= new EnumMap<>(Priority.class);
+			for (Priority p: Priority.values()) {
+				EventList el = new EventList(p);
+				for (int delay: DELAYS) {
+					el.getDelayStatistics().put(delay, new DelayStat(delay));
+				}//for
+				eventLists.put(p, el);
+			}//for
+			events 		= new EventStore();
+			out 		= System.out;
+			System.setOut(NULL_OUT);
+		}//setup
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			System.setOut(out);
+		}//tearDown
+
+		/**
+		 * Reads the next CHUNK events into the event store
+		 */
+		@Setup(Level.Invocation)
+		public void fill() throws IOException {
+			events.clear();
+			events.load(trace, CHUNK);
+		}//fill
+
+		/**
+		 * Adds the events of the event store to the event lists, matching them
+		 * @return the number of pending packets
+		 */
+		int match() {
+			for (int i=0; i<events.size(); i++) {
+				eventLists.get(events.getPriority(i)).set(events.getEventType(i), events.getPacketId(i), events.getTime(i));
+			}//for
+			int pending = 0;
+			for (EventList el: eventLists.values()) {
+				pending += el.size();
+			}//for
+			return pending;
+		}//match
+	}//Chunk
+
+	/**
+	 * Event lists with the queue times of Statistics.READ_CHUNK_SIZE events
+	 */
+	@State(Scope.Benchmark)
+	public static class QueueTimes {
+		Chunk chunk;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			chunk = new Chunk();
+			chunk.setup();
+			for (int i=0; i<Statistics.READ_CHUNK_SIZE/CHUNK; i++) {
+				chunk.fill();
+				chunk.match();
+			}//for
+		}//setup
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			chunk.tearDown();
+		}//tearDown
+	}//QueueTimes
+
+	/**
+	 * Exponentially distributed queue times in nanoseconds, around the delays of the statistics
+	 */
+	@State(Scope.Benchmark)
+	public static class Delays {
+		long[] queueTimes;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Random random = new Random(1);
+			double mean = 2*Simulation.MICSECONDS_PER_PACKET*Time.NANOSEC_PER_MICROSEC;
+			queueTimes = new long[DELAY_COUNT];
+			for (int i=0; i<DELAY_COUNT; i++) {
+				queueTimes[i] = (long)(-mean*Math.log(1.0 - random.nextDouble()));
+			}//for
+		}//setup
+	}//Delays
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Stages
+
+	/**
+	 * Event.createEventFromString(), the parser of the old text reader
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CHUNK)
+	public long createEventFromString(Lines l) {
+		long sum = 0L;
+		for (int i=0; i<CHUNK; i++) {
+			sum += Event.createEventFromString(l.nextLine()).getCreationTime();
+		}//for
+		return sum;
+	}//createEventFromString
+
+	/**
+	 * TraceReader of the format, decoding only
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CHUNK)
+	public long readTrace(TraceFile t) throws IOException {
+		long sum = 0L;
+		for (int i=0; i<CHUNK; i++) {
+			TraceReader r = t.nextEvent();
+			sum += r.getTime() + r.getPacketId() + r.getEventType() + r.getPriority().ordinal();
+		}//for
+		return sum;
+	}//readTrace
+
+	/**
+	 * Statistics.readEventsFromFile(), reading into the event lists, including the matching of the events
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CHUNK)
+	public int readEventsFromFile(TraceFile t) throws IOException {
+		int read = 0;
+		while (read < CHUNK) {
+			read += t.statistics.readEventsFromFile(CHUNK - read);
+			if (read < CHUNK) {
+				t.statistics.openTraceReader();			//end of the trace
+			}//if
+		}//while
+		return read;
+	}//readEventsFromFile
+
+	/**
+	 * EventList.set() for CHUNK events, matching them in the SlidingWindowMatcher and adding the queue times
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CHUNK)
+	public int matchEvents(Chunk c) {
+		return c.match();
+	}//matchEvents
+
+	/**
+	 * EventList.calculateDelayedCount() for all delays and priorities, which collectStatistics() does once
+	 * per Statistics.READ_CHUNK_SIZE events
+	 */
+	@Benchmark
+	@OperationsPerInvocation(Statistics.READ_CHUNK_SIZE)
+	public int calculateDelayedCount(QueueTimes q) {
+		int count = 0;
+		for (EventList el: q.chunk.eventLists.values()) {
+			for (int delay: DELAYS) {
+				count += el.calculateDelayedCount(delay);
+			}//for
+		}//for
+		return count;
+	}//calculateDelayedCount
+
+	/**
+	 * DelaySummary.record() for every queue time, the summary of the inline statistics and the parallel analysis
+	 */
+	@Benchmark
+	@OperationsPerInvocation(DELAY_COUNT)
+	public long recordDelays(Delays d) {
+		DelaySummary summary = new DelaySummary(DELAYS);
+		for (int i=0; i<DELAY_COUNT; i++) {
+			summary.record(d.queueTimes[i]);
+		}//for
+		return summary.getCountAbove(Statistics.DEFAULT_DELAY);
+	}//recordDelays
+
+	/**
+	 * DelaySummary.recordAll(), the summary of the pipelined analysis
+	 */
+	@Benchmark
+	@OperationsPerInvocation(DELAY_COUNT)
+	public long recordAllDelays(Delays d) {
+		DelaySummary summary = new DelaySummary(DELAYS);
+		summary.recordAll(d.queueTimes, 0, DELAY_COUNT);
+		return summary.getCountAbove(Statistics.DEFAULT_DELAY);
+	}//recordAllDelays
+
+	/**
+	 * All stages, one step of Statistics.collectStatistics() per CHUNK events
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CHUNK)
+	public int collectStatistics(TraceFile t) throws IOException {
+		int read = 0;
+		while (read < CHUNK) {
+			read += t.statistics.collectChunk(CHUNK - read);
+			if (read < CHUNK) {
+				t.statistics.openTraceReader();			//end of the trace
+			}//if
+		}//while
+		return read;
+	}//collectStatistics
+
+}//TraceAnalysisBenchmark
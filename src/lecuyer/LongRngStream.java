@@ -0,0 +1,320 @@
+package lecuyer;
+
+/**
+ * Title:          LongRngStream.java
+ * Description:    MRG32k3a streams and substreams (see RngStream) computed
+ *                 with 64-bit integer arithmetic instead of doubles.
+ *                 The state components are below 2^32 and the multipliers
+ *                 below 2^21, so a step needs no splitting of the products.
+ *                 Jump matrices have entries up to 2^32, their products are
+ *                 computed by splitting one factor into 16-bit halves.
+ *                 The output is bit for bit the same as the output of an
+ *                 RngStream with the same seed.
+ * @author Marten Sigwart
+ */
+public class LongRngStream implements RandomSource {
+
+// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Private constants.
+
+   private static final double norm   = 2.328306549295727688e-10;
+   private static final long   m1     = 4294967087L;
+   private static final long   m2     = 4294944443L;
+   private static final long   a12    =  1403580L;
+   private static final long   a13n   =   810728L;
+   private static final long   a21    =   527612L;
+   private static final long   a23n   =  1370589L;
+   private static final double invtwo24 = 5.9604644775390625e-8;
+
+   // Jump matrices of RngStream, entries reduced to [0, m)
+   private static final long InvA1[][]  = toLong (RngStream.InvA1, m1);
+   private static final long InvA2[][]  = toLong (RngStream.InvA2, m2);
+   private static final long A1p0[][]   = toLong (RngStream.A1p0, m1);
+   private static final long A2p0[][]   = toLong (RngStream.A2p0, m2);
+   private static final long A1p76[][]  = toLong (RngStream.A1p76, m1);
+   private static final long A2p76[][]  = toLong (RngStream.A2p76, m2);
+
+
+// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Private variables (fields) for each stream.
+
+   private long Cg[] = new long[6];
+   private long Bg[] = new long[6];
+   private long Ig[] = new long[6];
+   // Current state, start of the current substream and start of the stream.
+
+   private boolean anti;
+   private boolean prec53;
+   private String descriptor;
+
+
+// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Private methods
+
+    //--------------------------------------------------------------
+    private static long[][] toLong (double A[][], long m) {
+       long B[][] = new long[3][3];
+       for (int i = 0; i < 3; i++)
+          for (int j = 0; j < 3; j++)
+             B[i][j] = (((long) A[i][j]) % m + m) % m;
+       return B;
+    }
+
+    //--------------------------------------------------------------
+    /* Compute (a*s + c) MOD m ; 0 <= a, s, c < m < 2^32.
+       a is split into 16-bit halves, so no product exceeds 2^48. */
+    private static long multModM (long a, long s, long c, long m) {
+       long v = ((a >>> 16) * s) % m;
+       return ((v << 16) + (a & 0xFFFF) * s + c) % m;
+    }
+
+    //-----------------------------------------------------------
+    /* Returns v = A*s MOD m for the 3 components of s starting at off.
+       Works even if v = s.                                          */
+    private static void matVecModM (long A[][], long s[], int off, long v[], long m) {
+       long x0 = 0, x1 = 0, x2 = 0;
+       for (int j = 0; j < 3; ++j) {
+          x0 = multModM (A[0][j], s[off + j], x0, m);
+          x1 = multModM (A[1][j], s[off + j], x1, m);
+          x2 = multModM (A[2][j], s[off + j], x2, m);
+       }
+       v[off] = x0;   v[off + 1] = x1;   v[off + 2] = x2;
+    }
+
+    //------------------------------------------------------------
+    /* Returns C = A*B MOD m. Works even if A = C or B = C or A = B = C. */
+    private static void matMatModM (long A[][], long B[][], long C[][], long m) {
+       long W[][] = new long[3][3];
+       for (int i = 0; i < 3; ++i)
+          for (int j = 0; j < 3; ++j) {
+             long x = 0;
+             for (int k = 0; k < 3; ++k)
+                x = multModM (A[i][k], B[k][j], x, m);
+             W[i][j] = x;
+          }
+       for (int i = 0; i < 3; ++i)
+          for (int j = 0; j < 3; ++j)
+             C[i][j] = W[i][j];
+    }
+
+    //-------------------------------------------------------------
+    /* Compute matrix B = (A^(2^e) Mod m) */
+    private static void matTwoPowModM (long A[][], long B[][], long m, int e) {
+       for (int i = 0; i < 3; i++)
+          for (int j = 0; j < 3; ++j)  B[i][j] = A[i][j];
+       for (int i = 0; i < e; i++) matMatModM (B, B, B, m);
+    }
+
+    //-------------------------------------------------------------
+    /* Compute matrix B = A^c Mod m */
+    private static void matPowModM (long A[][], long B[][], long m, int c) {
+       long W[][] = new long[3][3];
+       for (int i = 0; i < 3; i++)
+          for (int j = 0; j < 3; ++j) {
+             W[i][j] = A[i][j];
+             B[i][j] = (i == j) ? 1 : 0;
+          }
+       while (c > 0) {
+          if ((c % 2) == 1) matMatModM (W, B, B, m);
+          matMatModM (W, W, W, m);
+          c /= 2;
+       }
+    }
+
+   //-------------------------------------------------------------
+   // Generate a uniform random number, with 32 bits of resolution.
+   private double U01 () {
+        long p1, p2;
+        double u;
+        /* Component 1 */
+        p1 = (a12 * Cg[1] - a13n * Cg[0]) % m1;
+        if (p1 < 0) p1 += m1;
+        Cg[0] = Cg[1];   Cg[1] = Cg[2];   Cg[2] = p1;
+        /* Component 2 */
+        p2 = (a21 * Cg[5] - a23n * Cg[3]) % m2;
+        if (p2 < 0) p2 += m2;
+        Cg[3] = Cg[4];   Cg[4] = Cg[5];   Cg[5] = p2;
+        /* Combination */
+        u = ((p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm);
+        return (anti) ? (1 - u) : u;
+   }
+
+   //-------------------------------------------------------------
+   // Generate a uniform random number, with 52 bits of resolution.
+   private double U01d () {
+        double u = U01();
+        if (anti) {
+            u += (U01() - 1.0) * invtwo24;
+            return (u < 0.0) ? u + 1.0 : u;
+        } else {
+            u += U01() * invtwo24;
+            return (u < 1.0) ? u : (u - 1.0);
+        }
+   }
+
+
+// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Public methods, same as in RngStream
+
+   /* Creates the next stream of the package seed, streams of RngStream
+      and LongRngStream are taken from the same sequence.             */
+   public LongRngStream ()  {
+      double seed[] = new double[6];
+      RngStream.takeNextSeed (seed);
+      descriptor = "";
+      for (int i = 0; i < 6; ++i)
+         Bg[i] = Cg[i] = Ig[i] = (long) seed[i];
+   }
+
+
+   public LongRngStream (String name)  {
+      this ();
+      descriptor = name;
+   }
+
+
+   /* Creates a stream starting at the specified seed, e.g. from SeedManager.getSeed(). */
+   public LongRngStream (double seed[], String name)  {
+      descriptor = name;
+      for (int i = 0; i < 6; ++i)
+         Bg[i] = Cg[i] = Ig[i] = (long) seed[i];
+   }
+
+
+   public void resetStartStream ()  {
+      for (int i = 0; i < 6;  ++i)  Cg[i] = Bg[i] = Ig[i];
+   }
+
+
+   public void resetStartSubstream ()  {
+      for (int i = 0; i < 6;  ++i)  Cg[i] = Bg[i];
+   }
+
+
+   public void resetNextSubstream ()  {
+      matVecModM (A1p76, Bg, 0, Bg, m1);
+      matVecModM (A2p76, Bg, 3, Bg, m2);
+      for (int i = 0; i < 6;  ++i) Cg[i] = Bg[i];
+   }
+
+
+   public void setAntithetic (boolean a)  {
+      anti = a;
+   }
+
+
+   public void increasedPrecis (boolean incp)  {
+      prec53 = incp;
+   }
+
+
+   public void advanceState (int e, int c)  {
+      long B1[][] = new long[3][3], C1[][] = new long[3][3];
+      long B2[][] = new long[3][3], C2[][] = new long[3][3];
+
+      if (e > 0) {
+          matTwoPowModM (A1p0, B1, m1, e);
+          matTwoPowModM (A2p0, B2, m2, e);
+      }
+      else if (e < 0) {
+          matTwoPowModM (InvA1, B1, m1, -e);
+          matTwoPowModM (InvA2, B2, m2, -e);
+      }
+
+      if (c >= 0) {
+          matPowModM (A1p0, C1, m1, c);
+          matPowModM (A2p0, C2, m2, c);
+      }
+      else {
+          matPowModM (InvA1, C1, m1, -c);
+          matPowModM (InvA2, C2, m2, -c);
+      }
+
+      if (e != 0) {
+          matMatModM (B1, C1, C1, m1);
+          matMatModM (B2, C2, C2, m2);
+      }
+
+      matVecModM (C1, Cg, 0, Cg, m1);
+      matVecModM (C2, Cg, 3, Cg, m2);
+   }
+
+
+   public boolean setSeed (long seed[])  {
+      if (!RngStream.isValidSeed (seed))
+         return false;                   // FAILURE
+      for (int i = 0; i < 6;  ++i)
+         Cg[i] = Bg[i] = Ig[i] = seed[i];
+      return true;                       // SUCCESS
+   }
+
+
+   public long[] getState()  {
+      return Cg;
+   }
+
+
+   public String getDescriptor()  {
+      return descriptor;
+   }
+
+
+   public double randU01 ()  {
+      if (prec53) return this.U01d();
+      else return this.U01();
+   }
+
+
+   public int randInt (int i, int j)  {
+      return (i + (int)(randU01() * (j - i + 1.0)));
+   }
+
+
+   /* Fills u[off .. off+len-1] with the next len values of randU01 (). */
+   public void fillU01 (double u[], int off, int len)  {
+      if (prec53) {
+         for (int n = off; n < off + len; n++)  u[n] = U01d();
+         return;
+      }
+      fill (u, null, off, len, 0, 0.0);
+   }
+
+
+   public void fillU01 (double u[])  {
+      fillU01 (u, 0, u.length);
+   }
+
+
+   /* Fills x with the next x.length values of randInt (i, j). */
+   public void fillInts (int x[], int i, int j)  {
+      if (prec53) {
+         for (int n = 0; n < x.length; n++)  x[n] = randInt (i, j);
+         return;
+      }
+      fill (null, x, 0, x.length, i, j - i + 1.0);
+   }
+
+
+   /* Same as U01 () for len numbers with the state in local variables. */
+   private void fill (double u[], int x[], int off, int len, int i, double range)  {
+      long s0 = Cg[0], s1 = Cg[1], s2 = Cg[2];
+      long s3 = Cg[3], s4 = Cg[4], s5 = Cg[5];
+      for (int n = off; n < off + len; n++) {
+         long p1 = (a12 * s1 - a13n * s0) % m1;
+         if (p1 < 0) p1 += m1;
+         s0 = s1;   s1 = s2;   s2 = p1;
+         long p2 = (a21 * s5 - a23n * s3) % m2;
+         if (p2 < 0) p2 += m2;
+         s3 = s4;   s4 = s5;   s5 = p2;
+         double v = ((p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm);
+         if (anti) v = 1 - v;
+         if (x != null)
+            x[n] = i + (int)(v * range);
+         else
+            u[n] = v;
+      }
+      Cg[0] = s0;   Cg[1] = s1;   Cg[2] = s2;
+      Cg[3] = s3;   Cg[4] = s4;   Cg[5] = s5;
+   }
+
+}
@@ -2,15 +2,30 @@ package lecuyer;
 
 public class RandomIntervalGenerator {
 	
+	public static final int BLOCK_SIZE = 256;	//intervals generated at once
 	
-	private RngStream rngStream;
+	private RandomSource rngStream;
 	private int minInterval;
 	private int maxInterval;
+	private final int block[];				//prefetched intervals, same sequence as single randInt() calls
+	private int position;					//next interval in block
 	
+	/**
+	 * Creates a generator on the next stream of the package seed (creation order dependent)
+	 */
 	public RandomIntervalGenerator(int minInterval, int maxInterval) {
-		this.rngStream = new RngStream();
+		this(new RngStream(), minInterval, maxInterval);
+	}//Constructor
+	
+	/**
+	 * Creates a generator on the specified random source, e.g. from a SeedManager
+	 */
+	public RandomIntervalGenerator(RandomSource rngStream, int minInterval, int maxInterval) {
+		this.rngStream = rngStream;
 		this.minInterval = minInterval;
 		this.maxInterval = maxInterval;
+		this.block = new int[BLOCK_SIZE];
+		this.position = BLOCK_SIZE;				//block is filled on first use
 	}//Constructor
 	
 	/**
@@ -18,11 +33,11 @@ public class RandomIntervalGenerator {
 	 * @return the interval as long
 	 */
 	public int generateNewRandomInterval() {
-		int interval = 0;
-		
-		interval = rngStream.randInt(minInterval, maxInterval);
-		
-		return interval;
+		if (position == block.length) {
+			rngStream.fillInts(block, minInterval, maxInterval);
+			position = 0;
+		}//if
+		return block[position++];
 	}//generateNewRandomInterval
 	
 	
@@ -0,0 +1,25 @@
+package lecuyer;
+
+/**
+ * Source of uniform random numbers used by the simulation (see RandomSourceType)
+ * @author Marten Sigwart
+ *
+ */
+public interface RandomSource {
+
+	/**
+	 * @return a uniform random number in [0, 1)
+	 */
+	double randU01();
+
+	/**
+	 * @return a uniform random integer in [i, j]
+	 */
+	int randInt(int i, int j);
+
+	/**
+	 * Fills x with the next x.length values of randInt(i, j)
+	 */
+	void fillInts(int x[], int i, int j);
+
+}//RandomSource
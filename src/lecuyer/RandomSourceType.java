@@ -0,0 +1,15 @@
+package lecuyer;
+
+/**
+ * Available random number generators, see SeedManager.createSource().<br>
+ * MRG32K3A: RngStream (L'Ecuyer, double arithmetic), reference generator.<br>
+ * MRG32K3A_LONG: LongRngStream, same numbers as MRG32K3A with 64-bit integer arithmetic.<br>
+ * SPLITMIX64: SplitMix64 (algorithm of java.util.SplittableRandom), fast, for exploratory runs.<br>
+ * XOROSHIRO128PLUS: Xoroshiro128Plus, fast, for exploratory runs.
+ */
+public enum RandomSourceType {
+	MRG32K3A,
+	MRG32K3A_LONG,
+	SPLITMIX64,
+	XOROSHIRO128PLUS;
+}//RandomSourceType
@@ -17,10 +17,11 @@ package lecuyer;
  
 
 
-public class RngStream { 
+public class RngStream implements RandomSource { 
 
 // %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
 // Private constants.
+// The jump matrices are package private, LongRngStream uses them too.
 
 
    private static final double norm   = 2.328306549295727688e-10;
@@ -33,43 +34,45 @@ public class RngStream {
    private static final double two17    =  131072.0;
    private static final double two53    =  9007199254740992.0;
    private static final double invtwo24 = 5.9604644775390625e-8;
+   private static final double invm1  = 1.0 / m1;   // used by fill ()
+   private static final double invm2  = 1.0 / m2;
 
-   private static final double InvA1[][] = {   // Inverse of A1p0
+   static final double InvA1[][] = {   // Inverse of A1p0
       { 184888585.0, 0.0, 1945170933.0 },
       {         1.0, 0.0,          0.0 },
       {         0.0, 1.0,          0.0 }
       };
-   private static final double InvA2[][] = {   // Inverse of A2p0
+   static final double InvA2[][] = {   // Inverse of A2p0
       { 0.0, 360363334.0, 4225571728.0 },
       { 1.0,         0.0,          0.0 },
       { 0.0,         1.0,          0.0 }
       };
-   private static final double A1p0[][]  =  {
+   static final double A1p0[][]  =  {
       {       0.0,       1.0,      0.0 },
       {       0.0,       0.0,      1.0 },
       { -810728.0, 1403580.0,      0.0 }
       };
-   private static final double A2p0[][]  =  {
+   static final double A2p0[][]  =  {
       {        0.0,   1.0,         0.0 },
       {        0.0,   0.0,         1.0 },
       { -1370589.0,   0.0,    527612.0 }
       };
-   private static final double A1p76[][] = {
+   static final double A1p76[][] = {
       {      82758667.0, 1871391091.0, 4127413238.0 },
       {    3672831523.0,   69195019.0, 1871391091.0 },
       {    3672091415.0, 3528743235.0,   69195019.0 }
       };
-   private static final double A2p76[][] = {
+   static final double A2p76[][] = {
       {    1511326704.0, 3759209742.0, 1610795712.0 },
       {    4292754251.0, 1511326704.0, 3889917532.0 },
       {    3859662829.0, 4292754251.0, 3708466080.0 }
       };
-   private static final double A1p127[][] = {
+   static final double A1p127[][] = {
       {    2427906178.0, 3580155704.0,  949770784.0 },
       {     226153695.0, 1230515664.0, 3580155704.0 },
       {    1988835001.0,  986791581.0, 1230515664.0 }
       };
-   private static final double A2p127[][] = {
+   static final double A2p127[][] = {
       {    1464411153.0,  277697599.0, 1610723613.0 },
       {      32183930.0, 1464411153.0, 1022607788.0 },
       {    2824425944.0,   32183930.0, 2093834863.0 }
@@ -81,6 +84,7 @@ public class RngStream {
 
    private static double nextSeed[] = {12345, 12345, 12345, 12345, 12345, 12345};
    // Default seed of the package and seed for the next stream to be created.
+   // Guarded by RngStream.class, streams may be created by several threads.
 
    private double Cg[] = new double[6];
    private double Bg[] = new double[6];
@@ -237,15 +241,29 @@ public class RngStream {
       descriptor = "";
       anti = false;
       prec53 = false;
+      takeNextSeed (Ig);
       for (int i = 0; i < 6; ++i)  
-         Bg[i] = Cg[i] = Ig[i] = nextSeed[i];
-      matVecModM (A1p127, nextSeed, nextSeed, m1);
-      double temp[] = new double[3];
-      for (int i = 0; i < 3; ++i)  
-         temp[i] = nextSeed[i + 3];
-      matVecModM (A2p127, temp, temp, m2);
-      for (int i = 0; i < 3; ++i)  
-         nextSeed[i + 3] = temp[i];
+         Bg[i] = Cg[i] = Ig[i];
+   } 
+
+
+   /* Copies the package seed into seed and advances the package seed
+      to the next stream. Shared by RngStream and LongRngStream.       */
+   static synchronized void takeNextSeed (double seed[])  {
+      for (int i = 0; i < 6; ++i)  
+         seed[i] = nextSeed[i];
+      jumpSeed (nextSeed, 1, 0);
+   } 
+
+
+   /* Creates a stream starting at the specified seed, the package seed
+      (nextSeed) is neither used nor advanced.                          */
+   public RngStream (double seed[], String name)  {
+      descriptor = name;
+      anti = false;
+      prec53 = false;
+      for (int i = 0; i < 6; ++i)  
+         Bg[i] = Cg[i] = Ig[i] = seed[i];
    } 
 
 
@@ -259,7 +277,9 @@ public class RngStream {
       // Must use long because there is no unsigned int type.
         if (CheckSeed (seed) != 0)
             return false;                   // FAILURE     
-      for (int i = 0; i < 6;  ++i)  nextSeed[i] = seed[i];
+      synchronized (RngStream.class) {
+         for (int i = 0; i < 6;  ++i)  nextSeed[i] = seed[i];
+      }
           return true;                     // SUCCESS
    } 
 
@@ -330,6 +350,45 @@ public class RngStream {
    } 
  
 
+    //-------------------------------------------------------------
+    /* Advances the seed s by streams * 2^127 + substreams * 2^76 steps,
+       i.e. to the start of substream substreams of stream streams
+       counted from s. Does not touch any shared state.               */
+    static void jumpSeed (double s[], int streams, int substreams) {
+       double B1[][] = new double[3][3], B2[][] = new double[3][3];
+       double temp[] = new double[3];
+       if (streams > 0) {
+          matPowModM (A1p127, B1, m1, streams);
+          matPowModM (A2p127, B2, m2, streams);
+          matVecModM (B1, s, s, m1);
+          for (int i = 0; i < 3; ++i) temp[i] = s[i + 3];
+          matVecModM (B2, temp, temp, m2);
+          for (int i = 0; i < 3; ++i) s[i + 3] = temp[i];
+       }
+       if (substreams > 0) {
+          matPowModM (A1p76, B1, m1, substreams);
+          matPowModM (A2p76, B2, m2, substreams);
+          matVecModM (B1, s, s, m1);
+          for (int i = 0; i < 3; ++i) temp[i] = s[i + 3];
+          matVecModM (B2, temp, temp, m2);
+          for (int i = 0; i < 3; ++i) s[i + 3] = temp[i];
+       }
+    }
+
+
+    /* Returns true if the seed is legitimate, does not print anything. */
+    static boolean isValidSeed (long seed[]) {
+       if (seed == null || seed.length < 6)
+          return false;
+       for (int i = 0; i < 6; ++i) {
+          if (seed[i] < 0 || seed[i] >= ((i < 3) ? m1 : m2))
+             return false;
+       }
+       return !(seed[0] == 0 && seed[1] == 0 && seed[2] == 0)
+           && !(seed[3] == 0 && seed[4] == 0 && seed[5] == 0);
+    }
+
+
     private static int CheckSeed (long seed[]) {
     /* Check that the seeds are legitimate values. Returns 0 if legal seeds,
        -1 otherwise. */
@@ -427,4 +486,67 @@ public class RngStream {
    } 
 
 
+   /* Fills u[off .. off+len-1] with the next len values of randU01 ().
+      The state is kept in local variables during the loop, so the
+      generator runs without calls or array accesses per number.       */
+   public void fillU01 (double u[], int off, int len)  {
+      if (prec53) {
+         for (int n = off; n < off + len; n++)  u[n] = U01d();
+         return;
+      }
+      fill (u, null, off, len, 0, 0.0);
+   } 
+
+
+   public void fillU01 (double u[])  {
+      fillU01 (u, 0, u.length);
+   } 
+
+
+   /* Fills x with the next x.length values of randInt (i, j). */
+   public void fillInts (int x[], int i, int j)  {
+      if (prec53) {
+         for (int n = 0; n < x.length; n++)  x[n] = randInt (i, j);
+         return;
+      }
+      fill (null, x, 0, x.length, i, j - i + 1.0);
+   } 
+
+
+   /* Generates len numbers with 32 bits of resolution (as U01 ()) into
+      u, or i + (int)(u * range) into x if x != null.
+      The divisions by m1 and m2 are replaced by multiplications with
+      the reciprocal. The quotient may then be off by one, which is
+      corrected, so the states (exact integers) are the same as in U01 (). */
+   private void fill (double u[], int x[], int off, int len, int i, double range)  {
+      double s0 = Cg[0], s1 = Cg[1], s2 = Cg[2];
+      double s3 = Cg[3], s4 = Cg[4], s5 = Cg[5];
+      for (int n = off; n < off + len; n++) {
+         int k;
+         double p1, p2, v;
+         /* Component 1 */
+         p1 = a12 * s1 - a13n * s0;
+         k = (int)(p1 * invm1);          /* may be off by one, corrected below */
+         p1 -= k * m1;
+         if (p1 < 0.0) p1 += m1; else if (p1 >= m1) p1 -= m1;
+         s0 = s1;   s1 = s2;   s2 = p1;
+         /* Component 2 */
+         p2 = a21 * s5 - a23n * s3;
+         k  = (int)(p2 * invm2);
+         p2 -= k * m2;
+         if (p2 < 0.0) p2 += m2; else if (p2 >= m2) p2 -= m2;
+         s3 = s4;   s4 = s5;   s5 = p2;
+         /* Combination */
+         v = ((p1 > p2) ? (p1 - p2) * norm : (p1 - p2 + m1) * norm);
+         if (anti) v = 1 - v;
+         if (x != null)
+            x[n] = i + (int)(v * range);
+         else
+            u[n] = v;
+      }
+      Cg[0] = s0;   Cg[1] = s1;   Cg[2] = s2;
+      Cg[3] = s3;   Cg[4] = s4;   Cg[5] = s5;
+   } 
+
+
 }
@@ -0,0 +1,132 @@
+package lecuyer;
+
+/**
+ * Derives independent RngStreams from a master seed by jump-ahead.<br>
+ * Replication R uses stream R (R * 2^127 steps from the master seed),
+ * client N of a replication uses substream N of that stream (N * 2^76 further steps).
+ * The stream of a client only depends on master seed, replication and client,
+ * not on the order or thread in which streams are created, so every replication is reproducible.<br>
+ * The 64-bit generators have no substreams: every replication gets a root generator seeded from the start
+ * of its MRG32k3a stream, the clients get successive splits (SplitMix64) or jumps (Xoroshiro128Plus) of the root.
+ * Immutable and thread safe, no shared state is modified.
+ * @author Marten Sigwart
+ *
+ */
+public class SeedManager {
+
+	public static final long[] DEFAULT_MASTER_SEED = {12345, 12345, 12345, 12345, 12345, 12345};
+
+	private final long[] masterSeed;
+
+
+	public SeedManager() {
+		this(DEFAULT_MASTER_SEED);
+	}//Constructor
+
+	/**
+	 * Creates a seed manager
+	 * @param masterSeed seed of stream 0, six values as for RngStream.setSeed()
+	 */
+	public SeedManager(long[] masterSeed) {
+		if (!RngStream.isValidSeed(masterSeed)) {
+			throw new IllegalArgumentException("Invalid master seed");
+		}//if
+		this.masterSeed = masterSeed.clone();
+	}//Constructor
+
+
+	/**
+	 * @return the starting seed of the stream of a client
+	 */
+	public double[] getSeed(int replication, int client) {
+		if (replication < 0 || client < 0) {
+			throw new IllegalArgumentException("Replication and client must not be negative");
+		}//if
+		double[] seed = new double[6];
+		for (int i=0; i<6; i++) {
+			seed[i] = masterSeed[i];
+		}//for
+		RngStream.jumpSeed(seed, replication, client);
+		return seed;
+	}//getSeed
+
+	/**
+	 * Creates the stream of a client
+	 * @param replication index of the replication (simulation run)
+	 * @param client id of the client within the replication
+	 * @return a new stream starting at substream client of stream replication
+	 */
+	public RngStream createStream(int replication, int client) {
+		return new RngStream(getSeed(replication, client), "R" + replication + "C" + client);
+	}//createStream
+
+	/**
+	 * @return the 64-bit seed of the root generator of a replication, derived from the seed of its MRG32k3a stream
+	 */
+	public long getReplicationSeed(int replication) {
+		double[] seed = getSeed(replication, 0);
+		long z = 0L;
+		for (int i=0; i<6; i++) {
+			z = SplitMix64.mix64(z + (long)seed[i]);
+		}//for
+		return z;
+	}//getReplicationSeed
+
+	/**
+	 * Creates the random source of a client, the same source as createSources() creates for the client.
+	 * Takes time proportional to the client id for SPLITMIX64 and XOROSHIRO128PLUS.
+	 * @param type the generator
+	 * @param replication index of the replication (simulation run)
+	 * @param client id of the client within the replication
+	 * @return a new random source, see createSources()
+	 */
+	public RandomSource createSource(RandomSourceType type, int replication, int client) {
+		switch (type) {
+			case MRG32K3A_LONG:
+				return new LongRngStream(getSeed(replication, client), "R" + replication + "C" + client);
+			case SPLITMIX64:
+			case XOROSHIRO128PLUS:
+				return createSources(type, replication, client + 1)[client];
+			default:
+				return createStream(replication, client);
+		}//switch
+	}//createSource
+
+	/**
+	 * Creates the random sources of the clients 0 to clients-1 of a replication.<br>
+	 * MRG32K3A, MRG32K3A_LONG: substream client of stream replication, non-overlapping.<br>
+	 * SPLITMIX64: split number client of the root generator, statistically independent (SplittableRandom).<br>
+	 * XOROSHIRO128PLUS: the root generator jumped client*2^64 numbers ahead, non-overlapping for 2^64 numbers.
+	 * @param type the generator
+	 * @param replication index of the replication (simulation run)
+	 * @param clients number of clients
+	 * @return new random sources, indexed by client id
+	 */
+	public RandomSource[] createSources(RandomSourceType type, int replication, int clients) {
+		RandomSource[] sources = new RandomSource[clients];
+		switch (type) {
+			case SPLITMIX64:
+				SplitMix64 splitMixRoot = new SplitMix64(getReplicationSeed(replication));
+				for (int c=0; c<clients; c++) {
+					sources[c] = splitMixRoot.split();
+				}//for
+				break;
+			case XOROSHIRO128PLUS:
+				Xoroshiro128Plus xoroshiroRoot = new Xoroshiro128Plus(getReplicationSeed(replication));
+				for (int c=0; c<clients; c++) {
+					sources[c] = xoroshiroRoot.split();
+				}//for
+				break;
+			default:
+				for (int c=0; c<clients; c++) {
+					sources[c] = createSource(type, replication, c);
+				}//for
+		}//switch
+		return sources;
+	}//createSources
+
+	public long[] getMasterSeed() {
+		return masterSeed.clone();
+	}//getMasterSeed
+
+}//SeedManager
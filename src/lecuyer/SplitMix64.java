@@ -0,0 +1,84 @@
+package lecuyer;
+
+/**
+ * SplitMix64 generator, the algorithm of java.util.SplittableRandom (Steele, Lea, Flood 2014),
+ * written out because SplittableRandom is not available in Java 7.<br>
+ * split() creates a new generator for another thread or replication whose numbers are
+ * statistically independent of this generator. Not thread safe, every thread uses its own split.
+ * @author Marten Sigwart
+ *
+ */
+public class SplitMix64 implements RandomSource {
+
+	private static final long 	GOLDEN_GAMMA 	= 0x9e3779b97f4a7c15L;
+	private static final double DOUBLE_UNIT 	= 1.0/(1L << 53);
+
+	private long 		seed;
+	private final long 	gamma;		//odd
+
+
+	/**
+	 * Creates a generator, the same seed gives the same numbers as new SplittableRandom(seed)
+	 */
+	public SplitMix64(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}//Constructor
+
+	private SplitMix64(long seed, long gamma) {
+		this.seed 	= seed;
+		this.gamma 	= gamma;
+	}//Constructor
+
+
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}//mix64
+
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}//mixGamma
+
+
+	public long nextLong() {
+		seed += gamma;
+		return mix64(seed);
+	}//nextLong
+
+	/**
+	 * @return a new generator, this generator advances
+	 */
+	public SplitMix64 split() {
+		long s = nextLong();
+		seed += gamma;
+		return new SplitMix64(s, mixGamma(seed));
+	}//split
+
+
+	@Override
+	public double randU01() {
+		return (nextLong() >>> 11)*DOUBLE_UNIT;
+	}//randU01
+
+	@Override
+	public int randInt(int i, int j) {
+		return i + (int)(randU01()*(j - i + 1.0));
+	}//randInt
+
+	@Override
+	public void fillInts(int x[], int i, int j) {
+		double range = j - i + 1.0;
+		long s = seed;
+		for (int n=0; n<x.length; n++) {
+			s += gamma;
+			x[n] = i + (int)((mix64(s) >>> 11)*DOUBLE_UNIT*range);
+		}//for
+		seed = s;
+	}//fillInts
+
+}//SplitMix64
@@ -0,0 +1,103 @@
+package lecuyer;
+
+/**
+ * xoroshiro128+ generator (Blackman, Vigna 2018, parameters 24, 16, 37), period 2^128 - 1.
+ * Fast, for exploratory runs, the lowest bits are weak so only the upper 53 bits are used.<br>
+ * jump() advances by 2^64 numbers, so one seed yields 2^64 non-overlapping sequences
+ * for threads or replications. Not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+public class Xoroshiro128Plus implements RandomSource {
+
+	private static final double DOUBLE_UNIT = 1.0/(1L << 53);
+	private static final long[] JUMP 		= {0xdf900294d8f554a5L, 0x170865df4b3201fcL};
+
+	private long s0;
+	private long s1;
+
+
+	/**
+	 * Creates a generator, the state is initialized by SplitMix64 as recommended by the authors
+	 */
+	public Xoroshiro128Plus(long seed) {
+		SplitMix64 init = new SplitMix64(seed);
+		this.s0 = init.nextLong();
+		this.s1 = init.nextLong();
+		if (s0 == 0 && s1 == 0) {
+			s1 = 1;			//state must not be all zero
+		}//if
+	}//Constructor
+
+	private Xoroshiro128Plus(long s0, long s1) {
+		this.s0 = s0;
+		this.s1 = s1;
+	}//Constructor
+
+
+	public long nextLong() {
+		long a = s0;
+		long b = s1;
+		long result = a + b;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+		s1 = Long.rotateLeft(b, 37);
+		return result;
+	}//nextLong
+
+	/**
+	 * Advances the generator by 2^64 numbers
+	 */
+	public void jump() {
+		long t0 = 0;
+		long t1 = 0;
+		for (int i=0; i<JUMP.length; i++) {
+			for (int b=0; b<64; b++) {
+				if ((JUMP[i] & (1L << b)) != 0) {
+					t0 ^= s0;
+					t1 ^= s1;
+				}//if
+				nextLong();
+			}//for
+		}//for
+		s0 = t0;
+		s1 = t1;
+	}//jump
+
+	/**
+	 * @return a generator continuing at the current position, this generator jumps 2^64 numbers ahead
+	 */
+	public Xoroshiro128Plus split() {
+		Xoroshiro128Plus copy = new Xoroshiro128Plus(s0, s1);
+		jump();
+		return copy;
+	}//split
+
+
+	@Override
+	public double randU01() {
+		return (nextLong() >>> 11)*DOUBLE_UNIT;
+	}//randU01
+
+	@Override
+	public int randInt(int i, int j) {
+		return i + (int)(randU01()*(j - i + 1.0));
+	}//randInt
+
+	@Override
+	public void fillInts(int x[], int i, int j) {
+		double range = j - i + 1.0;
+		long a = s0;
+		long b = s1;
+		for (int n=0; n<x.length; n++) {
+			long result = a + b;
+			b ^= a;
+			a = Long.rotateLeft(a, 24) ^ b ^ (b << 16);
+			b = Long.rotateLeft(b, 37);
+			x[n] = i + (int)((result >>> 11)*DOUBLE_UNIT*range);
+		}//for
+		s0 = a;
+		s1 = b;
+	}//fillInts
+
+}//Xoroshiro128Plus
@@ -0,0 +1,108 @@
+package lecuyer;
+/*  Program to compare LongRngStream with RngStream: every operation of
+    testRngStream is applied to both generators and all outputs must be
+    equal bit for bit. Afterwards the speed of both is measured.        */
+
+public class testLongRngStream {
+
+   static int mismatches = 0;
+
+   static void check (String what, double a, double b) {
+      if (Double.doubleToLongBits (a) != Double.doubleToLongBits (b)) {
+         mismatches++;
+         System.out.println ("MISMATCH " + what + ": " + a + " != " + b);
+      }
+   }
+
+   static void compare (String what, RngStream d, LongRngStream l, int n) {
+      for (int i = 0; i < n; i++)
+         check (what, d.randU01 (), l.randU01 ());
+   }
+
+   public static void  main (String[] args)  {
+
+   long[] seed = { 12345, 12345, 12345, 12345, 12345, 12345 };
+   double[] dseed = { 12345, 12345, 12345, 12345, 12345, 12345 };
+   SeedManager seeds = new SeedManager (seed);
+
+   RngStream     d1 = new RngStream (dseed, "d1");
+   LongRngStream l1 = new LongRngStream (dseed, "l1");
+   compare ("start", d1, l1, 100000);
+
+   d1.advanceState (5, 3);        l1.advanceState (5, 3);
+   compare ("advanceState (5, 3)", d1, l1, 1000);
+
+   d1.advanceState (-127, 0);     l1.advanceState (-127, 0);
+   compare ("advanceState (-127, 0)", d1, l1, 1000);
+
+   d1.advanceState (0, -35);      l1.advanceState (0, -35);
+   compare ("advanceState (0, -35)", d1, l1, 1000);
+
+   d1.resetStartStream ();        l1.resetStartStream ();
+   for (int i = 0; i < 35; i++)
+      check ("randInt", d1.randInt (1, 10), l1.randInt (1, 10));
+
+   for (int i = 0; i < 4; i++) {
+      d1.resetNextSubstream ();   l1.resetNextSubstream ();
+   }
+   compare ("resetNextSubstream", d1, l1, 1000);
+
+   d1.resetStartSubstream ();     l1.resetStartSubstream ();
+   compare ("resetStartSubstream", d1, l1, 1000);
+
+   d1.setAntithetic (true);       l1.setAntithetic (true);
+   compare ("antithetic", d1, l1, 100000);
+
+   d1.increasedPrecis (true);     l1.increasedPrecis (true);
+   compare ("antithetic, increased precision", d1, l1, 100000);
+   d1.setAntithetic (false);      l1.setAntithetic (false);
+   compare ("increased precision", d1, l1, 100000);
+   d1.increasedPrecis (false);    l1.increasedPrecis (false);
+
+   for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 3; c++) {
+         RngStream     d = seeds.createStream (r, c);
+         LongRngStream l = new LongRngStream (seeds.getSeed (r, c), "");
+         compare ("SeedManager R" + r + "C" + c, d, l, 10000);
+      }
+   }
+
+   double[] ud = new double[1000], ul = new double[1000];
+   int[] xd = new int[1000], xl = new int[1000];
+   d1.fillU01 (ud);               l1.fillU01 (ul);
+   d1.fillInts (xd, 10, 2500);    l1.fillInts (xl, 10, 2500);
+   for (int i = 0; i < 1000; i++) {
+      check ("fillU01", ud[i], ul[i]);
+      check ("fillInts", xd[i], xl[i]);
+   }
+
+   System.out.println ("----------------------------------------------");
+   System.out.println ("Mismatches: " + mismatches);
+   System.out.println ("----------------------------------------------");
+
+
+   /* Speed */
+   int n = 50000000;
+   double sumd = 0.0, suml = 0.0;
+   for (int round = 0; round < 3; round++) {
+      long t0 = System.nanoTime ();
+      for (int i = 0; i < n; i++)  sumd += d1.randU01 ();
+      long t1 = System.nanoTime ();
+      for (int i = 0; i < n; i++)  suml += l1.randU01 ();
+      long t2 = System.nanoTime ();
+      System.out.printf ("randU01: RngStream %6.2f ns   LongRngStream %6.2f ns   speedup %4.2f\n",
+            (double)(t1 - t0) / n, (double)(t2 - t1) / n, (double)(t1 - t0) / (t2 - t1));
+   }
+   double[] u = new double[4096];
+   for (int round = 0; round < 3; round++) {
+      long t0 = System.nanoTime ();
+      for (int i = 0; i < n / u.length; i++) { d1.fillU01 (u); sumd += u[0]; }
+      long t1 = System.nanoTime ();
+      for (int i = 0; i < n / u.length; i++) { l1.fillU01 (u); suml += u[0]; }
+      long t2 = System.nanoTime ();
+      System.out.printf ("fillU01: RngStream %6.2f ns   LongRngStream %6.2f ns   speedup %4.2f\n",
+            (double)(t1 - t0) / n, (double)(t2 - t1) / n, (double)(t1 - t0) / (t2 - t1));
+   }
+   System.out.println ("(" + sumd + ", " + suml + ")");
+   }
+}
@@ -0,0 +1,93 @@
+package simulation;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates the packet arrivals of many clients in one thread (ClientMode.TIMING_WHEEL).<br>
+ * The next send time of every client is kept in a hierarchical TimingWheel, each tick the clients
+ * which are due send their packet on the thread of the scheduler and schedule their next packet.
+ * The cost per arrival does not depend on the number of clients. Between arrivals the scheduler parks
+ * until the next deadline of the wheel, it does not spin.
+ * Clients must be scheduled (Client.scheduleOn()) before the scheduler is started.
+ * The scheduler terminates when no client is scheduled anymore.
+ * @author Marten Sigwart
+ *
+ */
+public class ArrivalScheduler extends Thread {
+
+	public static final long DEFAULT_TICK_NANOS = Time.NANOSEC_PER_MICROSEC;		//resolution of the send times
+
+	private final TimingWheel 	wheel;
+	private final long 			origin;			//time of tick 0 in nanoseconds
+	private final long 			tickNanos;
+	private volatile boolean 	running;
+
+
+	public ArrivalScheduler() {
+		this(DEFAULT_TICK_NANOS);
+	}//Constructor
+
+	/**
+	 * Creates a new arrival scheduler
+	 * @param tickNanos length of a tick of the timing wheel in nanoseconds
+	 */
+	public ArrivalScheduler(long tickNanos) {
+		super("ArrivalScheduler");
+		this.origin 	= System.nanoTime();
+		this.tickNanos 	= tickNanos;
+		this.wheel 		= new TimingWheel(0L);
+		this.running 	= true;
+	}//Constructor
+
+
+	/**
+	 * Schedules a client entry, called by the clients
+	 * @param entry the entry of the client
+	 * @param time time of the arrival in nanoseconds (System.nanoTime())
+	 */
+	void schedule(TimingWheel.Entry entry, long time) {
+		long ticks = (time - origin + tickNanos - 1)/tickNanos;		//round up, never early
+		wheel.schedule(entry, ticks, time);
+	}//schedule
+
+
+	@Override
+	public void run() {
+		if (Thread.currentThread() != this) throw new IllegalStateException();
+
+		while (running && !wheel.isEmpty()) {
+			wheel.advance((System.nanoTime() - origin)/tickNanos);
+			if (!wheel.isEmpty()) {
+				parkUntilTick(wheel.nextDeadline());
+			}//if
+		}//while
+		running = false;
+	}//run
+
+	/**
+	 * Parks until the tick has been reached, clients are only scheduled by this thread, so no earlier arrival can come up
+	 */
+	private void parkUntilTick(long tick) {
+		long deadline = origin + tick*tickNanos;
+		long remaining;
+		while (running && (remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(this, remaining);
+		}//while
+	}//parkUntilTick
+
+	/**
+	 * Stops the scheduler, pending arrivals are dropped
+	 */
+	public void shutdown() {
+		running = false;
+		LockSupport.unpark(this);
+	}//shutdown
+
+	/**
+	 * @return the number of scheduled clients
+	 */
+	public int getScheduledCount() {
+		return wheel.size();
+	}//getScheduledCount
+
+}//ArrivalScheduler
@@ -2,6 +2,8 @@ package simulation;
 
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
 
 import lecuyer.RandomIntervalGenerator;
 
@@ -11,7 +13,7 @@ import lecuyer.RandomIntervalGenerator;
  * @author Marten Sigwart
  *
  */
-public class Client extends Thread implements Observer {
+public class Client extends Thread implements Observer, EventHandler {
 
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 // Private Members
@@ -27,6 +29,11 @@ public class Client extends Thread implements Observer {
 	private int		interval;			//Interval at which packets are sent in microseconds
 	private long 	startTime;
 	private long 	currentTime;
+	
+	private EventScheduler scheduler;	//scheduler in discrete event mode, null in real time mode
+	private ArrivalScheduler arrivalScheduler;	//scheduler in timing wheel client mode
+	private TimingWheel.Entry arrivalEntry;		//timer of this client in the timing wheel
+	private int		packetCounter;		//packets sent in discrete event mode
 
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 // Constructors
@@ -38,12 +45,25 @@ public class Client extends Thread implements Observer {
 	 * @param priority true if Client is a priority client
 	 */
 	Client(int id, int numPackets, int interval, Priority priority) {
+		this(id, numPackets, interval, priority,
+				new RandomIntervalGenerator(Simulation.CLIENT_SEND_MIN_INTERVAL, Simulation.CLIENT_SEND_MAX_INTERVAL));
+	}//Constructor
+	
+	/**
+	 * Creates a new client with its own random interval generator
+	 * @param id the client ID
+	 * @param numPackets the number of packets the client will send
+	 * @param interval the interval in milliseconds at which rate packets are sent
+	 * @param priority true if Client is a priority client
+	 * @param rig generator of the random send intervals
+	 */
+	Client(int id, int numPackets, int interval, Priority priority, RandomIntervalGenerator rig) {
 		super();
 		this.clientId 		= id;
 		this.numOfPackets 	= numPackets;
 		this.interval 		= interval;
 		this.priority 		= priority;
-		this.rig			= new RandomIntervalGenerator(Simulation.CLIENT_SEND_MIN_INTERVAL, Simulation.CLIENT_SEND_MAX_INTERVAL);
+		this.rig			= rig;
 	}//Constructor
 	
 	/**
@@ -108,16 +128,7 @@ public class Client extends Thread implements Observer {
 					
 					if ( (newTime - currentTime) >= (interval*Time.NANOSEC_PER_MICROSEC) ) {	//TODO --> Check for long repetition	
 						
-						/* Create new packet */
-						Packet packet = new Packet(this.priority);
-						//System.out.printf("Client %d: Created Packet: ID %d at time\n", this.clientId, packet.getId());
-						if ( !sendConnection.enqueuePacket(packet, packet.getPriority()) ){			//packet could not be put in server queue
-							System.out.printf("-------> Client %d: Lost packet %d\n", this.clientId, packet.getId());
-						} else {
-							//System.out.printf("Client %d: Sent packet %d\n", this.clientId, packet.getId());	//packet successfully reached server queue
-							interval = rig.generateNewRandomInterval();
-							//System.out.printf("Client %d: new Interval: %d\n", this.clientId, interval);
-						}//if
+						sendPacket();
 						packetCounter += 1;
 						currentTime = newTime;
 						
@@ -135,6 +146,161 @@ public class Client extends Thread implements Observer {
 		this.sendConnection = null;						//delete sendConncection
 		System.out.printf("Client %d: terminated.\n", this.clientId);
 	}//run
+	
+	
+	/**
+	 * Returns the run method for parking clients (ClientMode.VIRTUAL_THREAD), see runParking()
+	 * @param startBarrier released when all clients have been started
+	 */
+	public Runnable parkingRunnable(final CountDownLatch startBarrier) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				runParking(startBarrier);
+			}//run
+		};
+	}//parkingRunnable
+	
+	/**
+	 * Counterpart of run() which does not occupy a core while waiting:<br>
+	 * 1. Wait at the start barrier<br>
+	 * 2. Park until the start delay and the interval of each packet have passed, then send the packet<br>
+	 * 3. Delete this from list of Observers<br>
+	 * 4. Terminate<br>
+	 */
+	private void runParking(CountDownLatch startBarrier) {
+		try {
+			startBarrier.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}//catch
+		if (sendConnection == null) return;			//not connected
+		
+		int startDelay = rig.generateNewRandomInterval();
+		interval = rig.generateNewRandomInterval();
+		startTime = System.nanoTime();
+		currentTime = startTime;
+		parkUntil(startTime + startDelay*Time.NANOSEC_PER_MICROSEC);
+		
+		int packetCounter = 0;
+		while (packetCounter<numOfPackets && running == true) {	//send number of Packets
+			parkUntil(currentTime + interval*Time.NANOSEC_PER_MICROSEC);
+			if (!running) break;
+			
+			sendPacket();
+			packetCounter += 1;
+			currentTime = System.nanoTime();
+		}//while
+		running = false;
+		
+		this.sendConnection.deleteObserver(this);		//delete yourself from list of observers
+		this.sendConnection = null;
+	}//runParking
+	
+	/**
+	 * Parks the current thread until System.nanoTime() has reached the deadline
+	 */
+	private static void parkUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(remaining);
+		}//while
+	}//parkUntil
+	
+	
+	/**
+	 * Creates a new packet and sends it to the SendConnection.
+	 * A new interval is generated if the packet reached the server queue.
+	 */
+	private void sendPacket() {
+		/* Create new packet */
+		Packet packet = new Packet(this.priority);
+		//System.out.printf("Client %d: Created Packet: ID %d at time\n", this.clientId, packet.getId());
+		if ( !sendConnection.enqueuePacket(packet, packet.getPriority()) ){			//packet could not be put in server queue
+			System.out.printf("-------> Client %d: Lost packet %d\n", this.clientId, packet.getId());
+		} else {
+			//System.out.printf("Client %d: Sent packet %d\n", this.clientId, packet.getId());	//packet successfully reached server queue
+			interval = rig.generateNewRandomInterval();
+			//System.out.printf("Client %d: new Interval: %d\n", this.clientId, interval);
+		}//if
+	}//sendPacket
+	
+	
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
+// Discrete event mode
+	/**
+	 * Counterpart of run() for discrete event mode, the client is not started as thread:<br>
+	 * 1. Generate start delay and first interval<br>
+	 * 2. Schedule the first packet on the scheduler, like run() the first packet
+	 * is sent after the start delay and the first interval have passed<br>
+	 * Must be called after connectToSender() and before the SendConnection is started.
+	 * @param scheduler the scheduler of the SendConnection
+	 */
+	public void scheduleOn(EventScheduler scheduler) {
+		this.scheduler = scheduler;
+		this.packetCounter = 0;
+		int startDelay = rig.generateNewRandomInterval();
+		interval = rig.generateNewRandomInterval();
+		startTime = scheduler.getTime();
+		currentTime = startTime;
+		
+		if (numOfPackets > 0) {
+			scheduler.schedule(startTime + Math.max(startDelay, interval)*Time.NANOSEC_PER_MICROSEC, this);
+		}//if
+	}//scheduleOn
+	
+	
+	/**
+	 * Counterpart of scheduleOn(EventScheduler) for real time mode with ClientMode.TIMING_WHEEL,
+	 * the client is not started as thread, its packets are sent by the arrival scheduler thread.
+	 * Must be called after connectToSender() and before the arrival scheduler is started.
+	 * @param arrivalScheduler the arrival scheduler
+	 */
+	public void scheduleOn(ArrivalScheduler arrivalScheduler) {
+		this.arrivalScheduler = arrivalScheduler;
+		this.arrivalEntry = new TimingWheel.Entry(this);
+		this.packetCounter = 0;
+		int startDelay = rig.generateNewRandomInterval();
+		interval = rig.generateNewRandomInterval();
+		startTime = System.nanoTime();
+		currentTime = startTime;
+		
+		if (numOfPackets > 0) {
+			arrivalScheduler.schedule(arrivalEntry, startTime + Math.max(startDelay, interval)*Time.NANOSEC_PER_MICROSEC);
+		}//if
+	}//scheduleOn
+	
+	
+	/**
+	 * Sends a packet and schedules the next one (discrete event mode and timing wheel client mode)
+	 */
+	@Override
+	public void handleEvent(long time) {
+		if (!running || sendConnection == null) return;
+		
+		sendPacket();
+		packetCounter += 1;
+		
+		if (arrivalScheduler != null) {
+			currentTime = System.nanoTime();	//real time, the next interval starts when the packet was sent
+		} else {
+			currentTime = time;
+		}//if
+		
+		if (packetCounter < numOfPackets) {
+			if (arrivalScheduler != null) {
+				arrivalScheduler.schedule(arrivalEntry, currentTime + interval*Time.NANOSEC_PER_MICROSEC);
+			} else {
+				scheduler.schedule(currentTime + interval*Time.NANOSEC_PER_MICROSEC, this);
+			}//if
+		} else {
+			running = false;
+			this.sendConnection.deleteObserver(this);
+			this.sendConnection = null;
+			System.out.printf("Client %d: terminated.\n", this.clientId);
+		}//if
+	}//handleEvent
 
 
 	@Override		//--> OBSERVER PATTERN
@@ -143,7 +309,7 @@ public class Client extends Thread implements Observer {
 			case SendConnection.SERVER_EVENT_TERMINATED:
 				System.out.printf("Client %d: Lost connection to SendConnection, terminating...\n", this.clientId);
 				running = false;
-				sendConnection.deleteObserver(this);
+				o.deleteObserver(this);			//sendConnection may already be null if the client has just finished
 				break;
 			default:
 				break;
@@ -0,0 +1,15 @@
+package simulation;
+
+/**
+ * Determines how clients are executed in real time mode.<br>
+ * SPIN_THREAD: every client is a platform thread spinning on System.nanoTime(), clients are started one after another.<br>
+ * VIRTUAL_THREAD: every client runs in a virtual thread (platform thread before Java 21) and parks until its next send time,
+ * all clients start together behind a start barrier.<br>
+ * TIMING_WHEEL: clients are not run as threads, a small number of ArrivalScheduler threads send the packets
+ * of all clients using a hierarchical timing wheel.
+ */
+public enum ClientMode {
+	SPIN_THREAD,
+	VIRTUAL_THREAD,
+	TIMING_WHEEL;
+}//ClientMode
@@ -0,0 +1,16 @@
+package simulation;
+
+/**
+ * Callback for events scheduled on an EventScheduler (discrete event mode).
+ * @author Marten Sigwart
+ *
+ */
+public interface EventHandler {
+
+	/**
+	 * Called when the virtual clock reaches the time the event was scheduled for
+	 * @param time the current virtual time in nanoseconds
+	 */
+	void handleEvent(long time);
+
+}//EventHandler
@@ -0,0 +1,108 @@
+package simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * Future event list of the discrete event mode.
+ * Keeps an integer virtual clock (ticks in nanoseconds) which jumps to the time of the next
+ * scheduled event, so a simulation runs as fast as the events can be processed.
+ * Events with the same time are processed in the order they were scheduled.
+ * Not thread safe, all events are processed by the thread of the SendConnection.
+ * @author Marten Sigwart
+ *
+ */
+public class EventScheduler {
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Private Members
+	private final PriorityQueue<ScheduledEvent> futureEvents;
+
+	private long currentTime;		//virtual time in nanoseconds
+	private long sequence;			//insertion counter, keeps events with same time in FIFO order
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Constructors
+	/**
+	 * Creates a new scheduler with its virtual clock set to 0
+	 */
+	public EventScheduler() {
+		this.futureEvents 	= new PriorityQueue<ScheduledEvent>();
+		this.currentTime 	= 0L;
+		this.sequence 		= 0L;
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Methods
+
+	// Getter for the virtual time
+	public long getTime() { return this.currentTime; }
+
+	public boolean isEmpty() { return futureEvents.isEmpty(); }
+
+	public int size() { return futureEvents.size(); }
+
+
+	/**
+	 * Schedules an event at the specified virtual time
+	 * @param time the virtual time in nanoseconds, must not be in the past
+	 * @param handler the handler called when the event occurs
+	 */
+	public void schedule(long time, EventHandler handler) {
+		if (time < currentTime) {
+			throw new IllegalArgumentException("Cannot schedule event in the past: " + time + " < " + currentTime);
+		}//if
+		futureEvents.add(new ScheduledEvent(time, sequence++, handler));
+	}//schedule
+
+	/**
+	 * Schedules an event relative to the current virtual time
+	 * @param delay delay in nanoseconds
+	 * @param handler the handler called when the event occurs
+	 */
+	public void scheduleIn(long delay, EventHandler handler) {
+		schedule(currentTime + delay, handler);
+	}//scheduleIn
+
+
+	/**
+	 * Advances the virtual clock to the next event and processes it
+	 * @return true if an event was processed<br>
+	 * 		   false if the future event list is empty
+	 */
+	public boolean processNextEvent() {
+		ScheduledEvent event = futureEvents.poll();
+		if (event == null) {
+			return false;
+		}//if
+		currentTime = event.time;
+		event.handler.handleEvent(currentTime);
+		return true;
+	}//processNextEvent
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Entry of the future event list
+	private static final class ScheduledEvent implements Comparable<ScheduledEvent> {
+		private final long 			time;
+		private final long 			sequence;
+		private final EventHandler 	handler;
+
+		ScheduledEvent(long time, long sequence, EventHandler handler) {
+			this.time 		= time;
+			this.sequence 	= sequence;
+			this.handler 	= handler;
+		}//Constructor
+
+		@Override
+		public int compareTo(ScheduledEvent o) {
+			if (time != o.time) {
+				return (time < o.time) ? -1 : 1;
+			}//if
+			return (sequence < o.sequence) ? -1 : ((sequence == o.sequence) ? 0 : 1);
+		}//compareTo
+
+	}//ScheduledEvent
+
+}//EventScheduler
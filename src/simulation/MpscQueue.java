@@ -0,0 +1,36 @@
+package simulation;
+
+/**
+ * Queue of the SendConnection for one priority, written by many producers (clients)
+ * and read by a single consumer (SendConnection). See QueueType for the implementations.
+ * @author Marten Sigwart
+ *
+ * @param <E> the element type
+ */
+public interface MpscQueue<E> {
+
+	/**
+	 * Adds an element at the tail of the queue, may be called by any thread
+	 * @return true if the element was added<br>
+	 * 		   false if the queue is full
+	 */
+	boolean offer(E e);
+
+	/**
+	 * Removes the element at the head of the queue, must only be called by the consumer thread
+	 * @return the element, null if the queue is empty
+	 */
+	E poll();
+
+	/**
+	 * Must only be called by the consumer thread
+	 * @return true if poll() would return null
+	 */
+	boolean isEmpty();
+
+	/**
+	 * @return the number of elements in the queue
+	 */
+	int size();
+
+}//MpscQueue
@@ -0,0 +1,107 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for multiple producers (clients) and a single consumer (SendConnection).
+ * Elements are stored in a preallocated array, offer() and poll() do not allocate.
+ * Producers reserve capacity and claim their slot with one fetch-and-add each, no CAS retry loop.
+ * @author Marten Sigwart
+ *
+ * @param <E> the element type
+ */
+public class MpscRingBuffer<E> implements MpscQueue<E> {
+
+	private final AtomicReferenceArray<E> 	buffer;
+	private final int 						mask;
+	private final int 						capacity;
+
+	private final AtomicLong 				tail;		//next slot claimed by a producer
+	private final AtomicInteger 			size;		//reserved and not yet consumed elements
+	private long 							head;		//next slot read by the consumer, consumer only
+
+
+	/**
+	 * Creates a new ring buffer
+	 * @param capacity maximum number of elements in the queue
+	 */
+	public MpscRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+		}//if
+		int length = Integer.highestOneBit(capacity);
+		if (length < capacity) {
+			length <<= 1;
+		}//if
+		this.buffer 	= new AtomicReferenceArray<E>(length);
+		this.mask 		= length - 1;
+		this.capacity 	= capacity;
+		this.tail 		= new AtomicLong(0L);
+		this.size 		= new AtomicInteger(0);
+		this.head 		= 0L;
+	}//Constructor
+
+
+	/**
+	 * Adds an element at the tail of the queue, may be called by any thread
+	 * @param e the element
+	 * @return true if the element was added<br>
+	 * 		   false if the queue is full
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}//if
+		if (size.getAndIncrement() >= capacity) {		//reserve capacity
+			size.getAndDecrement();
+			return false;
+		}//if
+		long slot = tail.getAndIncrement();				//claim slot, it has been consumed since capacity was reserved
+		buffer.lazySet((int)slot & mask, e);			//publish
+		return true;
+	}//offer
+
+
+	/**
+	 * Removes the element at the head of the queue, must only be called by the consumer thread
+	 * @return the element, null if the queue is empty or the head element is not published yet
+	 */
+	@Override
+	public E poll() {
+		int index = (int)head & mask;
+		E e = buffer.get(index);
+		if (e == null) {
+			return null;
+		}//if
+		buffer.lazySet(index, null);
+		head++;
+		size.getAndDecrement();							//release capacity after the slot is free
+		return e;
+	}//poll
+
+
+	/**
+	 * Must only be called by the consumer thread
+	 * @return true if poll() would return null
+	 */
+	@Override
+	public boolean isEmpty() {
+		return buffer.get((int)head & mask) == null;
+	}//isEmpty
+
+	/**
+	 * @return the number of elements in the queue, including elements being added
+	 */
+	@Override
+	public int size() {
+		return size.get();
+	}//size
+
+	public int capacity() {
+		return capacity;
+	}//capacity
+
+}//MpscRingBuffer
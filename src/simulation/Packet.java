@@ -1,13 +1,15 @@
 package simulation;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Packet {
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 // Global variables
 	/**
-	 * Static id counter
+	 * Static id counter, shared by all client threads (and concurrent simulations)
 	 */
-	public static volatile int id = 0;
+	private static final AtomicInteger idCounter = new AtomicInteger(0);
 	
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
@@ -23,6 +25,11 @@ public class Packet {
 	//private final boolean 	priority;
 	private final Priority  priority;
 	
+	/**
+	 * Time the packet was enqueued at the SendConnection in nanoseconds
+	 */
+	private long			enqueueTime;
+	
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 // Constructors
@@ -37,7 +44,7 @@ public class Packet {
 	 * @param priority priority of packet, true if priority packet
 	 */
 	Packet(Priority priority) {
-		this(id++, priority);
+		this(idCounter.getAndIncrement(), priority);
 	}//Constructor
 	
 	/**
@@ -50,8 +57,15 @@ public class Packet {
 
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 // Getter and Setter
+	public static int getIdCount()	{ return idCounter.get(); }
+	
 	public int 		getId()			{ return packetId; }
 	public Priority	getPriority() 	{ return priority; }
+	public long		getEnqueueTime(){ return enqueueTime; }
+	
+	public void setEnqueueTime(long enqueueTime) {
+		this.enqueueTime = enqueueTime;
+	}//setEnqueueTime
 
 	
 }//Packet
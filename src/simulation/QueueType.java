@@ -0,0 +1,65 @@
+package simulation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of the queues of the SendConnection.<br>
+ * RING_BUFFER: bounded lock-free MpscRingBuffer, no allocation per packet.<br>
+ * CONCURRENT_LINKED: lock-free ConcurrentLinkedQueue bounded by an atomic counter, allocates a node per packet.<br>
+ * ARRAY_BLOCKING: bounded ArrayBlockingQueue, producers and consumer share one lock.
+ */
+public enum QueueType {
+	RING_BUFFER,
+	CONCURRENT_LINKED,
+	ARRAY_BLOCKING;
+
+	/**
+	 * Creates an empty queue of this type
+	 * @param capacity maximum number of elements
+	 */
+	public <E> MpscQueue<E> create(final int capacity) {
+		switch (this) {
+			case CONCURRENT_LINKED:
+				final ConcurrentLinkedQueue<E> linked = new ConcurrentLinkedQueue<E>();
+				final AtomicInteger size = new AtomicInteger(0);
+				return new MpscQueue<E>() {
+					@Override
+					public boolean offer(E e) {
+						if (size.getAndIncrement() >= capacity) {
+							size.getAndDecrement();
+							return false;
+						}//if
+						return linked.offer(e);
+					}//offer
+					@Override
+					public E poll() {
+						E e = linked.poll();
+						if (e != null) {
+							size.getAndDecrement();
+						}//if
+						return e;
+					}//poll
+					@Override
+					public boolean isEmpty() { return linked.isEmpty(); }
+					@Override
+					public int size() { return size.get(); }
+				};
+			case ARRAY_BLOCKING:
+				final ArrayBlockingQueue<E> blocking = new ArrayBlockingQueue<E>(capacity);
+				return new MpscQueue<E>() {
+					@Override
+					public boolean offer(E e) { return blocking.offer(e); }
+					@Override
+					public E poll() { return blocking.poll(); }
+					@Override
+					public boolean isEmpty() { return blocking.isEmpty(); }
+					@Override
+					public int size() { return blocking.size(); }
+				};
+			default:
+				return new MpscRingBuffer<E>(capacity);
+		}//switch
+	}//create
+}//QueueType
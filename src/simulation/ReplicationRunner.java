@@ -0,0 +1,90 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import statistics.Statistics;
+
+/**
+ * Runs independent simulations (replications) concurrently on a bounded thread pool.
+ * Each task runs its simulator to completion and collects its statistics,
+ * so statistics of finished replications are collected while other replications are still running.<br>
+ * Real time replications measure wall clock queue times, so replications may only run at the same time
+ * as long as their threads do not share cores, see getParallelism().
+ * @author Marten Sigwart
+ *
+ */
+public class ReplicationRunner {
+
+	private final ExecutorService executor;
+
+
+	/**
+	 * Creates a runner with one thread per available core, for replications with one busy thread each
+	 */
+	public ReplicationRunner() {
+		this(Runtime.getRuntime().availableProcessors());
+	}//Constructor
+
+	/**
+	 * Creates a runner
+	 * @param parallelism maximum number of replications running at the same time
+	 */
+	public ReplicationRunner(int parallelism) {
+		this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+	}//Constructor
+
+
+	/**
+	 * @return the number of replications which can run at the same time without oversubscribing the cores,
+	 * 		   at least 1 (replications are run one after another)
+	 */
+	public static int getParallelism(List<Simulator> simulators) {
+		int busyThreads = 1;
+		for (Simulator simulator: simulators) {
+			busyThreads = Math.max(busyThreads, simulator.getBusyThreads());
+		}//for
+		return Math.max(1, Runtime.getRuntime().availableProcessors()/busyThreads);
+	}//getParallelism
+
+
+	/**
+	 * Submits a simulator for execution
+	 * @param simulator the simulator to run
+	 * @return future which completes with the collected statistics of the simulation
+	 */
+	public Future<Statistics> submit(final Simulator simulator) {
+		return executor.submit(new Callable<Statistics>() {
+			@Override
+			public Statistics call() throws Exception {
+				simulator.runToCompletion();
+				simulator.getStatistics().collectStatistics();
+				return simulator.getStatistics();
+			}//call
+		});
+	}//submit
+
+	/**
+	 * Submits all simulators for execution
+	 * @return the futures in the order of the simulators
+	 */
+	public List<Future<Statistics>> submitAll(List<Simulator> simulators) {
+		List<Future<Statistics>> futures = new ArrayList<Future<Statistics>>(simulators.size());
+		for (Simulator simulator: simulators) {
+			futures.add(submit(simulator));
+		}//for
+		return futures;
+	}//submitAll
+
+	/**
+	 * Lets submitted replications finish, no new replications are accepted
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}//shutdown
+
+}//ReplicationRunner
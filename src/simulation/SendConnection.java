@@ -1,9 +1,7 @@
 package simulation;
 
 import java.util.EnumMap;
-import java.util.NoSuchElementException;
 import java.util.Observable;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import statistics.Event;
 import statistics.Statistics;
@@ -44,9 +42,9 @@ public class SendConnection extends Observable implements Runnable {
 	private volatile 	boolean 	running = true;
 	
 	/**
-	 * Priority buffer for received packets from priority clients
+	 * Priority buffer for received packets from priority clients, one queue per priority
 	 */
-	private				EnumMap<Priority, ConcurrentLinkedQueue<Packet>> queues;
+	private				EnumMap<Priority, MpscQueue<Packet>> queues;
 	
 	
 	/**
@@ -63,6 +61,12 @@ public class SendConnection extends Observable implements Runnable {
 	
 	private long progressTime;				//field to display progress during simulation
 	
+	//Discrete event variables
+	private final EventScheduler scheduler;	//null in real time mode
+	private final long serviceTime;			//time to send one packet in nanoseconds
+	private long lastSlotTime;				//time of the last service slot
+	private boolean slotScheduled;			//true if the next service slot is in the future event list
+	
 
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
@@ -83,14 +87,38 @@ public class SendConnection extends Observable implements Runnable {
 	 * @param speed connection speed in Mbs
 	 */
 	SendConnection(int runTime, int speed, int queueSize, Statistics stats) {
+		this(runTime, speed, queueSize, stats, null);
+	}//Constructor
+	
+	/**
+	 * Creates a new SendConnection
+	 * @param runTime connection run time in sec after number of seconds it will terminate
+	 * @param speed connection speed in Mbs
+	 * @param scheduler the scheduler for discrete event mode, null for real time mode
+	 */
+	SendConnection(int runTime, int speed, int queueSize, Statistics stats, EventScheduler scheduler) {
+		this(runTime, speed, queueSize, QueueType.RING_BUFFER, stats, scheduler);
+	}//Constructor
+	
+	/**
+	 * Creates a new SendConnection
+	 * @param runTime connection run time in sec after number of seconds it will terminate
+	 * @param speed connection speed in Mbs
+	 * @param queueType implementation of the packet queues
+	 * @param scheduler the scheduler for discrete event mode, null for real time mode
+	 */
+	SendConnection(int runTime, int speed, int queueSize, QueueType queueType, Statistics stats, EventScheduler scheduler) {
 		this.runTime = (long)runTime*Time.NANOSEC_PER_SEC;
 		this.progressTime = this.runTime/100;	//Time per 1 percent progress
 		this.connectionSpeed = speed;
+		this.scheduler = scheduler;
+		this.serviceTime = Math.round(Simulation.MICSECONDS_PER_PACKET*Time.NANOSEC_PER_MICROSEC);
+		this.slotScheduled = false;
 		
 		//init queues
 		this.queues				= new EnumMap<>(Priority.class);
 		for (Priority p : Priority.values()) {
-			queues.put(p, new ConcurrentLinkedQueue<Packet>());
+			queues.put(p, queueType.<Packet>create(queueSize));
 		}//for
 
 		
@@ -104,15 +132,25 @@ public class SendConnection extends Observable implements Runnable {
 // Methods
 	
 	/**
-	 * Delegate for thread start
+	 * Delegate for thread start, opens the trace of the statistics before
 	 */
 	public void start() {
+		this.stats.openTrace();
 		this.thread.start();
 	}//start
 	
 	// Method to terminate thread
 	public void terminate() { running = false; }
 	
+	public boolean isDiscreteEvent() { return scheduler != null; }
+	
+	/**
+	 * Returns the current time in nanoseconds, virtual time in discrete event mode
+	 */
+	private long now() {
+		return (scheduler != null) ? scheduler.getTime() : System.nanoTime();
+	}//now
+	
 	
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
@@ -127,6 +165,10 @@ public class SendConnection extends Observable implements Runnable {
 	 */
 	public void run() {
 		if (thread == null || Thread.currentThread() != thread) throw new IllegalStateException();
+		if (scheduler != null) {
+			runDiscreteEvents();
+			return;
+		}//if
 		startTime 	= System.nanoTime();			// Get start time
 		currentTime = startTime;
 		int progressPercent = 0;
@@ -142,15 +184,7 @@ public class SendConnection extends Observable implements Runnable {
 			
 			// It's time to send a packet
 			if ( (newTime - currentTime) >= (Simulation.MICSECONDS_PER_PACKET*Time.NANOSEC_PER_MICROSEC) ) {
-				//dequeuePacket();
-				Packet packet = null;
-				for (Priority p: Priority.values()) {
-					if (!queues.get(p).isEmpty()) {
-						packet = dequeuePacket(p);
-						currentTime = newTime;
-						break;
-					}//if
-				}//for
+				dequeueNextPacket();
 				currentTime = newTime;
 
 			}//if
@@ -177,6 +211,91 @@ public class SendConnection extends Observable implements Runnable {
 		System.out.println("SendConnection: Terminated...");
 		tellObservers(SERVER_EVENT_TERMINATED);
 	}//run
+	
+	
+	/**
+	 * Run method in discrete event mode:<br>
+	 * 1. Schedule termination and progress events<br>
+	 * 2. Process events of the scheduler until run time is reached or no more events are left<br>
+	 * Packets are sent in service slots of one packet send time, like in real time mode.
+	 * Slots are only scheduled while packets are waiting in the queues.
+	 */
+	private void runDiscreteEvents() {
+		startTime 		= scheduler.getTime();
+		currentTime 	= startTime;
+		lastSlotTime 	= startTime;
+		System.out.println("SendConnection started (discrete event mode)...");
+		System.out.printf("Simulation Progress:\n");
+		
+		scheduler.schedule(startTime + runTime, new EventHandler() {
+			@Override
+			public void handleEvent(long time) {
+				running = false;
+			}//handleEvent
+		});
+		if (progressTime > 0) {
+			scheduler.schedule(startTime + progressTime, new EventHandler() {
+				private int progressPercent = 0;
+				@Override
+				public void handleEvent(long time) {
+					progressPercent++;
+					System.out.printf("%d Percent....\n", progressPercent);
+					scheduler.schedule(time + progressTime, this);
+				}//handleEvent
+			});
+		}//if
+		if (hasQueuedPackets()) {
+			scheduleServiceSlot(startTime);
+		}//if
+		
+		while (running && scheduler.processNextEvent()) {
+			//events do the work
+		}//while
+		running = false;
+		System.out.println("SendConnection: Terminated...");
+		tellObservers(SERVER_EVENT_TERMINATED);
+	}//runDiscreteEvents
+	
+	
+	/**
+	 * Schedules the next service slot after the specified time, slots are aligned to the last slot
+	 * @param time the current virtual time
+	 */
+	private void scheduleServiceSlot(long time) {
+		long slots = (time - lastSlotTime + serviceTime - 1) / serviceTime;
+		if (slots < 1) {
+			slots = 1;
+		}//if
+		slotScheduled = true;
+		scheduler.schedule(lastSlotTime + slots*serviceTime, serviceSlot);
+	}//scheduleServiceSlot
+	
+	
+	/**
+	 * Service slot in discrete event mode: sends the first packet of the highest priority queue
+	 */
+	private final EventHandler serviceSlot = new EventHandler() {
+		@Override
+		public void handleEvent(long time) {
+			lastSlotTime 	= time;
+			currentTime 	= time;
+			slotScheduled 	= false;
+			dequeueNextPacket();
+			if (hasQueuedPackets()) {
+				scheduleServiceSlot(time);
+			}//if
+		}//handleEvent
+	};
+	
+	
+	private boolean hasQueuedPackets() {
+		for (Priority p: Priority.values()) {
+			if (!queues.get(p).isEmpty()) {
+				return true;
+			}//if
+		}//for
+		return false;
+	}//hasQueuedPackets
 
 	
 	
@@ -193,16 +312,23 @@ public class SendConnection extends Observable implements Runnable {
 	 */
 	public boolean enqueuePacket(Packet packet, Priority priority) {
 		boolean success = false;
-		long arrivalTime = System.nanoTime();
-		Event event = new Event(Event.EVENT_TYPE_ENQUEUE, arrivalTime, packet);
+		long arrivalTime = now();
+		packet.setEnqueueTime(arrivalTime);
 		
-		// Add packet to right queue
-		success = queues.get(priority).add(packet);
+		// Add packet to right queue, fails if the queue is full (tail drop)
+		success = queues.get(priority).offer(packet);
 		
 		if (success) {
-			stats.triggerEvent(event);
+			if (stats.isInlineStatistics()) {
+				stats.recordEnqueue(priority);
+			} else {
+				stats.triggerEvent(Event.EVENT_TYPE_ENQUEUE, arrivalTime, packet.getId(), packet.getPriority());
+			}//if
+			if (scheduler != null && !slotScheduled) {
+				scheduleServiceSlot(arrivalTime);
+			}//if
 		} else {
-			System.out.printf("SendConnection: Could not add packet to queue %s", priority.toString());
+			System.out.printf("SendConnection: Could not add packet to queue %s\n", priority.toString());
 		}//if
 		
 		return success;
@@ -211,6 +337,20 @@ public class SendConnection extends Observable implements Runnable {
 	
 	
 	
+	/**
+	 * Dequeues the packet first in line in the highest priority queue which is not empty,
+	 * must only be called by the thread of the SendConnection
+	 * @return the packet, null if all queues are empty
+	 */
+	Packet dequeueNextPacket() {
+		for (Priority p: Priority.values()) {
+			if (!queues.get(p).isEmpty()) {
+				return dequeuePacket(p);
+			}//if
+		}//for
+		return null;
+	}//dequeueNextPacket
+	
 	/**
 	 * This method dequeues the packet first in line in the packet queue
 	 * @param priority the priority of the packet --> determines from which queue
@@ -218,19 +358,20 @@ public class SendConnection extends Observable implements Runnable {
 	 * 		   false if no packet is in line
 	 */
 	private Packet dequeuePacket(Priority priority) {
-		try {
-			Packet packet = null;
-			Event event = null;
-			long departureTime = System.nanoTime();
-			packet = queues.get(priority).remove();
-			event = new Event(Event.EVENT_TYPE_DEQUEUE, departureTime, packet);
-			stats.triggerEvent(event);
-
-			return packet;
-		} catch (NoSuchElementException e) {
+		Packet packet = null;
+		long departureTime = now();
+		packet = queues.get(priority).poll();
+		if (packet == null) {
 			//System.out.printf("SendConnection: No Element in Queue...\n");
 			return null;
-		}//try
+		}//if
+		if (stats.isInlineStatistics()) {
+			stats.recordQueueTime(priority, departureTime - packet.getEnqueueTime());
+		} else {
+			stats.triggerEvent(Event.EVENT_TYPE_DEQUEUE, departureTime, packet.getId(), packet.getPriority());
+		}//if
+
+		return packet;
 	}//dequeuePacket
 	
 	
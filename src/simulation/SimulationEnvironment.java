@@ -1,9 +1,15 @@
 package simulation;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import lecuyer.RandomSourceType;
+import statistics.AnalysisMode;
 import statistics.Statistics;
+import statistics.TraceFormat;
 
 public class SimulationEnvironment {
 	
@@ -32,29 +38,31 @@ public class SimulationEnvironment {
 		
 		for(int i = 0; i < runs; i++){
 			simulators.add(new Simulator("output/output_" + i + ".txt"));
+			simulators.get(i).setReplication(i);		//independent random streams per simulation
 			setSimulatorOptions(simulators.get(i), i+1);
 		}//for
 		
-		for(int i = 0; i < runs;){
-			if(simulators.get(i).isRunning() == false){//If the simulator is not running
-				if(simulators.get(i).getStarted() == false){//If the simulator didn't start
-					simulators.get(i).runSimulation(); //runs the simulation
-				}
-				else{
-					stats.add(simulators.get(i).getStatistics()); //Saves the statistics of the last simulator
-					i++; //will pass to the next simulator
-				}//if
-			}//if
-		}//for
+		// Run the simulations concurrently as far as the cores allow, statistics are collected as soon as a simulation has finished
+		ReplicationRunner runner = new ReplicationRunner(ReplicationRunner.getParallelism(simulators));
+		List<Future<Statistics>> results = runner.submitAll(simulators);
+		runner.shutdown();
 		
 		for(int i = 0; i < runs; i++){
-			System.out.println("\nCollecting statistics for simulation " + (i+1) + ":");
-			stats.get(i).collectStatistics();
+			try {
+				stats.add(results.get(i).get());	//waits for simulation i
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace();
+				System.out.printf("SimulationEnvironment: Simulation %d failed\n", i+1);
+				continue;
+			}//catch
 			System.out.println("\n################ Simulation " + (i+1) + " ##########################");
 			System.out.println(simulators.get(i).printSimulationData());
-			stats.get(i).printStatistics();
+			stats.get(stats.size()-1).printStatistics();
 		}//for
 		
+		if (stats.size() > 1) {
+			Statistics.printReplicationStatistics(stats);
+		}//if
 	}//main
 
 	private static void setSimulatorOptions(Simulator simulator, int simulatorIndex)
@@ -73,7 +81,7 @@ public class SimulationEnvironment {
 					while(op != 0)
 					{
 						System.out.println("[1] - Send interval\n[2] - Send min interval\n[3] - Send max interval");
-						System.out.println("[4] - No. of packets\n[5] - No. of clients\n[6] - No. priority clients\n[0] - Return");
+						System.out.println("[4] - No. of packets\n[5] - No. of clients\n[6] - No. priority clients\n[7] - Virtual thread clients\n[8] - Timing wheel arrival threads (0 = off)\n[9] - Random source\n[0] - Return");
 
 						op = sc.nextInt();
 
@@ -116,6 +124,27 @@ public class SimulationEnvironment {
 								if(v>0)
 									simulator.setNumPriorityClients(v);
 								break;
+							case 7:
+								System.out.println("Run clients in virtual threads? (1 = yes, 0 = no): ");
+								v = sc.nextInt();
+								simulator.setClientMode(v == 1 ? ClientMode.VIRTUAL_THREAD : ClientMode.SPIN_THREAD);
+								break;
+							case 8:
+								System.out.println("Put a value for number of arrival threads (0 = one thread per client): ");
+								v = sc.nextInt();
+								if (v > 0) {
+									simulator.setClientMode(ClientMode.TIMING_WHEEL);
+									simulator.setArrivalThreads(v);
+								} else {
+									simulator.setClientMode(ClientMode.SPIN_THREAD);
+								}//if
+								break;
+							case 9:
+								System.out.println("Random source (0 = MRG32k3a, 1 = MRG32k3a long, 2 = SplitMix64, 3 = xoroshiro128+): ");
+								v = sc.nextInt();
+								if (v >= 0 && v < RandomSourceType.values().length)
+									simulator.setRandomSource(RandomSourceType.values()[v]);
+								break;
 							default:
 								break;
 						}
@@ -124,7 +153,7 @@ public class SimulationEnvironment {
 				// EOF client options
 				case 2: // server options
 					while(op != 0) {
-						System.out.println("[1] - Server runtime\n[2] - Send speed\n[3] - Server queue size");
+						System.out.println("[1] - Server runtime\n[2] - Send speed\n[3] - Server queue size\n[4] - Discrete event mode\n[5] - Binary trace format\n[6] - Inline statistics (no trace)\n[7] - Asynchronous trace writer\n[8] - Queue type\n[9] - Trace analysis");
 						System.out.println("[0] - Return");
 
 						op = sc.nextInt();
@@ -150,6 +179,38 @@ public class SimulationEnvironment {
 								if (v > 0)
 									simulator.setServerQueueSize(v);
 								break;
+							case 4:
+								System.out.println("Use discrete event mode? (1 = yes, 0 = no): ");
+								v = sc.nextInt();
+								simulator.setSimulationMode(v == 1 ? SimulationMode.DISCRETE_EVENT : SimulationMode.REAL_TIME);
+								break;
+							case 5:
+								System.out.println("Write binary trace? (1 = yes, 0 = no): ");
+								v = sc.nextInt();
+								simulator.setTraceFormat(v == 1 ? TraceFormat.BINARY : TraceFormat.TEXT);
+								break;
+							case 6:
+								System.out.println("Collect statistics inline without trace? (1 = yes, 0 = no): ");
+								v = sc.nextInt();
+								simulator.setInlineStatistics(v == 1);
+								break;
+							case 7:
+								System.out.println("Write trace asynchronously? (1 = yes, 0 = no): ");
+								v = sc.nextInt();
+								simulator.setAsyncTrace(v == 1);
+								break;
+							case 8:
+								System.out.println("Queue type (0 = ring buffer, 1 = concurrent linked queue, 2 = array blocking queue): ");
+								v = sc.nextInt();
+								if (v >= 0 && v < QueueType.values().length)
+									simulator.setServerQueueType(QueueType.values()[v]);
+								break;
+							case 9:
+								System.out.println("Trace analysis (0 = chunked, 1 = parallel, 2 = pipeline): ");
+								v = sc.nextInt();
+								if (v >= 0 && v < AnalysisMode.values().length)
+									simulator.setAnalysisMode(AnalysisMode.values()[v]);
+								break;
 
 							default:
 								break;
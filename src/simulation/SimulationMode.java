@@ -0,0 +1,12 @@
+package simulation;
+
+/**
+ * Determines how simulation time advances.<br>
+ * REAL_TIME: clients and SendConnection spin on System.nanoTime() in their own threads.<br>
+ * DISCRETE_EVENT: clients and SendConnection schedule events on an EventScheduler,
+ * the virtual clock jumps from event to event.
+ */
+public enum SimulationMode {
+	REAL_TIME,
+	DISCRETE_EVENT;
+}//SimulationMode
@@ -2,8 +2,18 @@ package simulation;
 
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 
+import lecuyer.RandomIntervalGenerator;
+import lecuyer.RandomSource;
+import lecuyer.RandomSourceType;
+import lecuyer.SeedManager;
+
+import statistics.AnalysisMode;
 import statistics.Statistics;
+import statistics.TraceFormat;
+import statistics.TraceHeader;
 
 public class Simulator implements Observer{
 	
@@ -23,6 +33,17 @@ public class Simulator implements Observer{
 	private static int DEFAULT_SERVER_RUNTIME 			= 10; //seconds
 	private static int DEFAULT_SERVER_SEND_SPEED		= 1000; //Mbs
 	private static int DEFAULT_SERVER_QUEUE_SIZE 		= 1000000;
+	private static QueueType DEFAULT_SERVER_QUEUE_TYPE	= QueueType.RING_BUFFER;
+	
+	//Simulation default globals
+	private static SimulationMode DEFAULT_SIMULATION_MODE	= SimulationMode.REAL_TIME;
+	private static ClientMode	  DEFAULT_CLIENT_MODE		= ClientMode.SPIN_THREAD;
+	private static int			  DEFAULT_ARRIVAL_THREADS	= 1;
+	private static TraceFormat	  DEFAULT_TRACE_FORMAT		= TraceFormat.TEXT;
+	private static boolean		  DEFAULT_ASYNC_TRACE		= true;
+	private static AnalysisMode	  DEFAULT_ANALYSIS_MODE		= AnalysisMode.PARALLEL;
+	private static long[]		  DEFAULT_MASTER_SEED		= SeedManager.DEFAULT_MASTER_SEED;
+	private static RandomSourceType DEFAULT_RANDOM_SOURCE	= RandomSourceType.MRG32K3A;
 	
 	//Private Members
 	private int clientSendInterval;
@@ -35,12 +56,20 @@ public class Simulator implements Observer{
 	private int serverSendSpeed; //Mbs
 	private long micSecondsPerPacket;	//ca. 122 µs/Packet
 	private int serverQueueSize;
+	private QueueType serverQueueType;
+	private SimulationMode simulationMode;
+	private ClientMode clientMode;
+	private int arrivalThreads;			//number of ArrivalSchedulers in timing wheel client mode
+	private SeedManager seedManager;	//streams of the clients
+	private int replication;			//index of the replication, selects the random streams
+	private RandomSourceType randomSource;	//generator of the client intervals
 	
 	//private final Simulation simulation = null;
 	private final Statistics stats;
 	private String file;
-	private boolean running;
-	private boolean started;
+	private volatile boolean running;
+	private volatile boolean started;
+	private final CountDownLatch terminated;		//released when the SendConnection has terminated
 	
 	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 	// Constructors
@@ -93,10 +122,20 @@ public class Simulator implements Observer{
 		this.setServerSendSpeed(serverSendSpeed);
 		this.setMicSecondsPerPacket(PACKET_SIZE_BITS/serverSendSpeed);
 		this.setServerQueueSize(serverQueueSize);
+		this.setSimulationMode(DEFAULT_SIMULATION_MODE);
+		this.setClientMode(DEFAULT_CLIENT_MODE);
+		this.setArrivalThreads(DEFAULT_ARRIVAL_THREADS);
+		this.setMasterSeed(DEFAULT_MASTER_SEED);
+		this.setReplication(0);
+		this.setRandomSource(DEFAULT_RANDOM_SOURCE);
+		this.setServerQueueType(DEFAULT_SERVER_QUEUE_TYPE);
 		this.file = file;
-		this.stats = new Statistics(file);
+		this.stats = new Statistics(file, DEFAULT_TRACE_FORMAT);
+		this.stats.setAsyncTrace(DEFAULT_ASYNC_TRACE);
+		this.stats.setAnalysisMode(DEFAULT_ANALYSIS_MODE);
 		this.running = false;
 		this.started = false;
+		this.terminated = new CountDownLatch(1);
 	}//Constructor
 	
 	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
@@ -106,13 +145,21 @@ public class Simulator implements Observer{
 		
 		System.out.printf("Hello Simulator\n");
 		System.out.printf( "The time is: %s\n", Time.getTimeStampString());
+		
+		stats.setRunParameters(createRunParameters());
+		
+		if (simulationMode == SimulationMode.DISCRETE_EVENT) {
+			runDiscreteEventSimulation();
+			return;
+		}//if
 
 		// Create SendConnection
-		SendConnection sc = new SendConnection(serverRuntime, serverSendSpeed, serverQueueSize, stats);
+		SendConnection sc = new SendConnection(serverRuntime, serverSendSpeed, serverQueueSize, serverQueueType, stats, null);
 		sc.addObserver(this);
 		sc.start();
 		
 		// Creation of clients
+		RandomSource sources[] = seedManager.createSources(randomSource, replication, numClients);
 		int clientId = 0;		
 		Client cl[] = new Client[numClients];
 		
@@ -121,24 +168,128 @@ public class Simulator implements Observer{
 			if (i<numPriorityClients) {
 				p = Priority.PACKET_PRIORITY_HIGH;
 			}//if
-			cl[i] = new Client(clientId++, clientNumPackets, clientSendInterval, p);
+			cl[i] = createClient(clientId++, p, sources);
 			cl[i].connectToSender(sc);					//Connect client to send connection
 		}//for
 		
 		// Start of clients
+		if (clientMode == ClientMode.VIRTUAL_THREAD) {
+			startParkingClients(cl);
+		} else if (clientMode == ClientMode.TIMING_WHEEL) {
+			startArrivalSchedulers(cl);
+		} else {
+			for (int i=0; i<cl.length; i++) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				cl[i].start();
+			}//for
+		}//if
+		
+		running = true;
+		started = true;
+		
+	}//runSimulation
+	
+	/**
+	 * Starts every client in its own (virtual) thread, the clients start sending together
+	 * when all threads have been started
+	 */
+	private void startParkingClients(Client cl[]) {
+		CountDownLatch startBarrier = new CountDownLatch(1);
+		ThreadFactory factory = new VirtualThreadFactory();
+		for (int i=0; i<cl.length; i++) {
+			Thread t = factory.newThread(cl[i].parkingRunnable(startBarrier));
+			t.setName("Client-" + cl[i].getClientId());
+			t.start();
+		}//for
+		startBarrier.countDown();
+	}//startParkingClients
+	
+	/**
+	 * Distributes the clients round robin over the arrival schedulers and starts the schedulers
+	 */
+	private void startArrivalSchedulers(Client cl[]) {
+		ArrivalScheduler schedulers[] = new ArrivalScheduler[Math.max(1, Math.min(arrivalThreads, cl.length))];
+		for (int i=0; i<schedulers.length; i++) {
+			schedulers[i] = new ArrivalScheduler();
+		}//for
+		for (int i=0; i<cl.length; i++) {
+			cl[i].scheduleOn(schedulers[i % schedulers.length]);
+		}//for
+		for (int i=0; i<schedulers.length; i++) {
+			schedulers[i].start();
+		}//for
+	}//startArrivalSchedulers
+	
+	/**
+	 * Runs the simulation and blocks until the SendConnection has terminated
+	 */
+	public void runToCompletion() throws InterruptedException {
+		runSimulation();
+		awaitTermination();
+	}//runToCompletion
+	
+	/**
+	 * Blocks until the SendConnection of the simulation has terminated, without polling
+	 */
+	public void awaitTermination() throws InterruptedException {
+		terminated.await();
+	}//awaitTermination
+	
+	/**
+	 * Runs the simulation in discrete event mode.
+	 * Clients schedule their packets on the scheduler of the SendConnection instead of being started as threads,
+	 * the SendConnection thread processes all events.
+	 */
+	private void runDiscreteEventSimulation() {
+		EventScheduler scheduler = new EventScheduler();
+		
+		// Create SendConnection
+		SendConnection sc = new SendConnection(serverRuntime, serverSendSpeed, serverQueueSize, serverQueueType, stats, scheduler);
+		sc.addObserver(this);
+		
+		// Creation of clients
+		RandomSource sources[] = seedManager.createSources(randomSource, replication, numClients);
+		int clientId = 0;
+		Client cl[] = new Client[numClients];
+		
 		for (int i=0; i<cl.length; i++) {
-			try {
-				Thread.sleep(1);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-			cl[i].start();
+			Priority p = Priority.PACKET_PRIORITY_LOW;
+			if (i<numPriorityClients) {
+				p = Priority.PACKET_PRIORITY_HIGH;
+			}//if
+			cl[i] = createClient(clientId++, p, sources);
+			cl[i].connectToSender(sc);					//Connect client to send connection
+			cl[i].scheduleOn(scheduler);				//Schedule first packet
 		}//for
 		
 		running = true;
 		started = true;
 		
-	}//runSimulation
+		sc.start();
+	}//runDiscreteEventSimulation
+	
+	/**
+	 * Creates a client with the random stream of the client in this replication
+	 * @param sources the random sources of all clients of this replication, see SeedManager.createSources()
+	 */
+	private Client createClient(int clientId, Priority p, RandomSource sources[]) {
+		RandomIntervalGenerator rig = new RandomIntervalGenerator(sources[clientId],
+											Simulation.CLIENT_SEND_MIN_INTERVAL, Simulation.CLIENT_SEND_MAX_INTERVAL);
+		return new Client(clientId, clientNumPackets, clientSendInterval, p, rig);
+	}//createClient
+	
+	/**
+	 * Creates the run parameters which are written into the header of binary traces
+	 */
+	private TraceHeader createRunParameters() {
+		return new TraceHeader(numClients, numPriorityClients, clientNumPackets, clientSendMinInterval, clientSendMaxInterval,
+							   serverRuntime, serverSendSpeed, serverQueueSize,
+							   Math.round(Simulation.MICSECONDS_PER_PACKET*Time.NANOSEC_PER_MICROSEC), simulationMode.ordinal());
+	}//createRunParameters
 	
 	//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%	
 	// Setters
@@ -174,6 +325,42 @@ public class Simulator implements Observer{
 	public static void setDefaultServerQueueSize(int defaultServerQueueSize){
 		DEFAULT_SERVER_QUEUE_SIZE = defaultServerQueueSize;
 	}//setDefaultServerQueueSize
+	
+	public static void setDefaultSimulationMode(SimulationMode defaultSimulationMode){
+		DEFAULT_SIMULATION_MODE = defaultSimulationMode;
+	}//setDefaultSimulationMode
+	
+	public static void setDefaultClientMode(ClientMode defaultClientMode){
+		DEFAULT_CLIENT_MODE = defaultClientMode;
+	}//setDefaultClientMode
+	
+	public static void setDefaultServerQueueType(QueueType defaultServerQueueType){
+		DEFAULT_SERVER_QUEUE_TYPE = defaultServerQueueType;
+	}//setDefaultServerQueueType
+	
+	public static void setDefaultArrivalThreads(int defaultArrivalThreads){
+		DEFAULT_ARRIVAL_THREADS = defaultArrivalThreads;
+	}//setDefaultArrivalThreads
+	
+	public static void setDefaultTraceFormat(TraceFormat defaultTraceFormat){
+		DEFAULT_TRACE_FORMAT = defaultTraceFormat;
+	}//setDefaultTraceFormat
+	
+	public static void setDefaultAsyncTrace(boolean defaultAsyncTrace){
+		DEFAULT_ASYNC_TRACE = defaultAsyncTrace;
+	}//setDefaultAsyncTrace
+	
+	public static void setDefaultAnalysisMode(AnalysisMode defaultAnalysisMode){
+		DEFAULT_ANALYSIS_MODE = defaultAnalysisMode;
+	}//setDefaultAnalysisMode
+	
+	public static void setDefaultRandomSource(RandomSourceType defaultRandomSource){
+		DEFAULT_RANDOM_SOURCE = defaultRandomSource;
+	}//setDefaultRandomSource
+	
+	public static void setDefaultMasterSeed(long[] defaultMasterSeed){
+		DEFAULT_MASTER_SEED = defaultMasterSeed.clone();
+	}//setDefaultMasterSeed
 
 	
 	@Override
@@ -182,6 +369,7 @@ public class Simulator implements Observer{
 			case SendConnection.SERVER_EVENT_TERMINATED:
 				//stats.printStatistics();
 				running = false;
+				terminated.countDown();
 				break;
 			default:
 				break;
@@ -239,6 +427,66 @@ public class Simulator implements Observer{
 		return serverQueueSize;
 	}
 	
+	public QueueType getServerQueueType() {
+		return serverQueueType;
+	}
+	
+	public SimulationMode getSimulationMode() {
+		return simulationMode;
+	}
+	
+	public ClientMode getClientMode() {
+		return clientMode;
+	}
+	
+	public int getArrivalThreads() {
+		return arrivalThreads;
+	}
+	
+	/**
+	 * @return the number of threads which keep a core busy while the simulation runs, used to decide
+	 * 		   how many replications may run at the same time (see ReplicationRunner)
+	 */
+	public int getBusyThreads() {
+		if (simulationMode == SimulationMode.DISCRETE_EVENT) {
+			return 1;										//the SendConnection thread processes all events
+		}//if
+		if (clientMode == ClientMode.VIRTUAL_THREAD) {
+			return 2;										//SendConnection, clients park until their send times
+		} else if (clientMode == ClientMode.TIMING_WHEEL) {
+			return 1 + Math.max(1, Math.min(arrivalThreads, numClients));
+		}//if
+		return 1 + numClients;								//SendConnection and one spinning thread per client
+	}
+	
+	public TraceFormat getTraceFormat() {
+		return stats.getTraceFormat();
+	}
+	
+	public boolean isInlineStatistics() {
+		return stats.isInlineStatistics();
+	}
+	
+	public boolean isAsyncTrace() {
+		return stats.isAsyncTrace();
+	}
+	
+	public AnalysisMode getAnalysisMode() {
+		return stats.getAnalysisMode();
+	}
+	
+	public long[] getMasterSeed() {
+		return seedManager.getMasterSeed();
+	}
+	
+	public int getReplication() {
+		return replication;
+	}
+	
+	public RandomSourceType getRandomSource() {
+		return randomSource;
+	}
+	
 	public Statistics getStatistics(){
 		return this.stats;
 	}
@@ -253,11 +501,21 @@ public class Simulator implements Observer{
 		str += "\tClient Send Max Interval: " 		+ getClientSendMaxInterval() + "\n";
 		str += "\tNumber of packets per client: " 	+ getClientNumPackets() 	 + "\n";
 		str += "\tNumber of packets per client: " 	+ getClientNumPackets() 	 + "\n";
+		str += "\tClient Mode: " 					+ getClientMode()
+				+ ((getClientMode() == ClientMode.VIRTUAL_THREAD && !VirtualThreadFactory.isVirtual()) ? " (platform threads)" : "")
+				+ ((getClientMode() == ClientMode.TIMING_WHEEL) ? " (" + getArrivalThreads() + " arrival threads)" : "") + "\n";
 		
 		str += "\n>>>>>>>>>>>>>> Server Information <<<<<<<<<<<<<<<<<<<\n\n";
 		str += "\tServer Runtime: " 				+ getServerRuntime() 		 + " sec\n";
 		str += "\tServer Send Speed: " 				+ getServerSendSpeed() 		 + " Mb/s\n";
 		str += "\tServer Queue Size: " 				+ getServerQueueSize() 		 + "\n";
+		str += "\tServer Queue Type: " 				+ getServerQueueType() 		 + "\n";
+		str += "\tSimulation Mode: " 				+ getSimulationMode() 		 + "\n";
+		str += "\tTrace Format: " 					+ (isInlineStatistics() ? "none (inline statistics)" : getTraceFormat()) + "\n";
+		str += "\tAsynchronous Trace Writer: " 		+ isAsyncTrace() 			 + "\n";
+		str += "\tTrace Analysis: " 					+ (isInlineStatistics() ? "none (inline statistics)" : getAnalysisMode()) + "\n";
+		str += "\tReplication: " 					+ getReplication() 			 + "\n";
+		str += "\tRandom Source: " 					+ getRandomSource() 		 + "\n";
 		
 		return str;
 	}
@@ -301,4 +559,57 @@ public class Simulator implements Observer{
 	public void setServerQueueSize(int serverQueueSize) {
 		this.serverQueueSize = serverQueueSize;
 	}
+	
+	public void setServerQueueType(QueueType serverQueueType) {
+		this.serverQueueType = serverQueueType;
+	}
+	
+	public void setSimulationMode(SimulationMode simulationMode) {
+		this.simulationMode = simulationMode;
+	}
+	
+	public void setClientMode(ClientMode clientMode) {
+		this.clientMode = clientMode;
+	}
+	
+	public void setArrivalThreads(int arrivalThreads) {
+		this.arrivalThreads = arrivalThreads;
+	}
+	
+	public void setTraceFormat(TraceFormat traceFormat) {
+		this.stats.setTraceFormat(traceFormat);
+	}
+	
+	public void setInlineStatistics(boolean inlineStatistics) {
+		this.stats.setInlineStatistics(inlineStatistics);
+	}
+	
+	public void setAsyncTrace(boolean asyncTrace) {
+		this.stats.setAsyncTrace(asyncTrace);
+	}
+	
+	public void setAnalysisMode(AnalysisMode analysisMode) {
+		this.stats.setAnalysisMode(analysisMode);
+	}
+	
+	/**
+	 * Sets the master seed from which the streams of all replications are derived
+	 */
+	public void setMasterSeed(long[] masterSeed) {
+		this.seedManager = new SeedManager(masterSeed);
+	}
+	
+	/**
+	 * Sets the index of the replication, replications with different indices use independent random streams
+	 */
+	public void setReplication(int replication) {
+		this.replication = replication;
+	}
+	
+	/**
+	 * Sets the random number generator of the clients
+	 */
+	public void setRandomSource(RandomSourceType randomSource) {
+		this.randomSource = randomSource;
+	}
 }
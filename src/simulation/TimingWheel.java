@@ -0,0 +1,192 @@
+package simulation;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck) for timers which are rescheduled over and over.<br>
+ * Time is counted in ticks. Level L has WHEEL_SIZE slots of WHEEL_SIZE^L ticks each, an entry is kept
+ * in the level of the highest tick digit in which its deadline differs from the current tick and is
+ * moved down one or more levels when the current tick reaches its slot (cascading).
+ * Scheduling and expiring an entry is O(1), independent of the number of entries.<br>
+ * Entries are intrusive list nodes owned by their handler, so scheduling does not allocate.
+ * Not thread safe, all methods must be called by the thread advancing the wheel.
+ * @author Marten Sigwart
+ *
+ */
+public class TimingWheel {
+
+	public static final int 	WHEEL_BITS 	= 8;
+	public static final int 	WHEEL_SIZE 	= 1 << WHEEL_BITS;		//slots per level
+	public static final int 	LEVELS 		= 4;					//WHEEL_SIZE^LEVELS ticks before overflow
+
+	private static final int 	MASK 		= WHEEL_SIZE - 1;
+
+	/**
+	 * Timer of one handler, may only be scheduled once at a time
+	 */
+	public static class Entry {
+		private final EventHandler 	handler;
+		private long 				deadline;		//in ticks
+		private long 				time;			//time passed to the handler
+		private Entry 				next;
+		private boolean 			scheduled;
+
+		public Entry(EventHandler handler) {
+			this.handler = handler;
+		}//Constructor
+
+		public boolean isScheduled() {
+			return scheduled;
+		}//isScheduled
+	}//Entry
+
+
+	private final Entry[][] 	slots;			//heads of singly linked lists, per level and slot
+	private Entry 				overflow;		//entries more than WHEEL_SIZE^LEVELS ticks ahead
+	private long 				currentTick;
+	private int 				size;
+
+
+	/**
+	 * Creates an empty wheel
+	 * @param startTick the current tick
+	 */
+	public TimingWheel(long startTick) {
+		this.slots 			= new Entry[LEVELS][WHEEL_SIZE];
+		this.overflow 		= null;
+		this.currentTick 	= startTick;
+		this.size 			= 0;
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Scheduling
+
+	/**
+	 * Schedules an entry, deadlines which are not in the future expire at the next tick
+	 * @param entry the entry, must not be scheduled already
+	 * @param deadline tick at which the entry expires
+	 * @param time time which is passed to the handler when the entry expires
+	 */
+	public void schedule(Entry entry, long deadline, long time) {
+		if (entry.scheduled) {
+			throw new IllegalStateException("Entry has already been scheduled");
+		}//if
+		entry.deadline 	= Math.max(deadline, currentTick + 1);
+		entry.time 		= time;
+		entry.scheduled = true;
+		insert(entry);
+		size++;
+	}//schedule
+
+	/**
+	 * Adds an entry to the slot of the highest digit in which its deadline differs from the current tick
+	 */
+	private void insert(Entry entry) {
+		long diff = entry.deadline ^ currentTick;
+		int level = (diff == 0) ? 0 : (63 - Long.numberOfLeadingZeros(diff))/WHEEL_BITS;
+		if (level >= LEVELS) {
+			entry.next 	= overflow;
+			overflow 	= entry;
+			return;
+		}//if
+		int slot = (int)(entry.deadline >>> (level*WHEEL_BITS)) & MASK;
+		entry.next 			= slots[level][slot];
+		slots[level][slot] 	= entry;
+	}//insert
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Advancing
+
+	/**
+	 * Advances the wheel tick by tick and calls the handlers of all expired entries.
+	 * Handlers may schedule their entry again.
+	 * @param tick the tick to advance to
+	 * @return the number of expired entries
+	 */
+	public int advance(long tick) {
+		int expired = 0;
+		while (currentTick < tick) {
+			currentTick++;
+
+			// Cascade higher levels whose slot boundary has been reached
+			for (int level=1; level<LEVELS; level++) {
+				if ((currentTick & ((1L << (level*WHEEL_BITS)) - 1)) != 0) {
+					break;
+				}//if
+				int slot = (int)(currentTick >>> (level*WHEEL_BITS)) & MASK;
+				Entry e = slots[level][slot];
+				slots[level][slot] = null;
+				reinsert(e);
+				if (level == LEVELS-1 && (currentTick & ((1L << (LEVELS*WHEEL_BITS)) - 1)) == 0) {
+					Entry o = overflow;
+					overflow = null;
+					reinsert(o);
+				}//if
+			}//for
+
+			// Expire level 0
+			int slot = (int)currentTick & MASK;
+			Entry e = slots[0][slot];
+			slots[0][slot] = null;
+			while (e != null) {
+				Entry next = e.next;
+				e.next 		= null;
+				e.scheduled = false;
+				size--;
+				expired++;
+				e.handler.handleEvent(e.time);
+				e = next;
+			}//while
+		}//while
+		return expired;
+	}//advance
+
+	private void reinsert(Entry e) {
+		while (e != null) {
+			Entry next = e.next;
+			insert(e);
+			e = next;
+		}//while
+	}//reinsert
+
+
+	/**
+	 * Finds the first occupied slot after the current tick, level by level. Entries of level L are in the
+	 * current slot range of level L+1, so the first occupied slot of the lowest level is the earliest one.
+	 * Costs at most LEVELS*WHEEL_SIZE slot reads, independent of the number of entries.
+	 * @return the next tick at which an entry expires (level 0) or has to be cascaded (higher levels),
+	 * 		   no entry expires before it; Long.MAX_VALUE if the wheel is empty
+	 */
+	public long nextDeadline() {
+		if (size == 0) {
+			return Long.MAX_VALUE;
+		}//if
+		for (int level=0; level<LEVELS; level++) {
+			int shift 	= level*WHEEL_BITS;
+			long base 	= (currentTick >>> (shift + WHEEL_BITS)) << (shift + WHEEL_BITS);		//start of the slot range
+			for (int slot=((int)(currentTick >>> shift) & MASK) + 1; slot<WHEEL_SIZE; slot++) {
+				if (slots[level][slot] != null) {
+					return base + ((long)slot << shift);
+				}//if
+			}//for
+		}//for
+		return ((currentTick >>> (LEVELS*WHEEL_BITS)) + 1) << (LEVELS*WHEEL_BITS);		//overflow is cascaded
+	}//nextDeadline
+
+
+	public long getCurrentTick() {
+		return currentTick;
+	}//getCurrentTick
+
+	/**
+	 * @return the number of scheduled entries
+	 */
+	public int size() {
+		return size;
+	}//size
+
+	public boolean isEmpty() {
+		return size == 0;
+	}//isEmpty
+
+}//TimingWheel
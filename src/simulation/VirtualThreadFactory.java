@@ -0,0 +1,87 @@
+package simulation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads if the runtime supports them (Java 21+), platform daemon threads otherwise.
+ * Virtual threads are created by reflection, so the code still compiles for older Java versions.
+ * @author Marten Sigwart
+ *
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+
+	private static final Object 	VIRTUAL_BUILDER;		//Thread.Builder.OfVirtual, null if not supported
+	private static final Method 	UNSTARTED;				//Thread.Builder.unstarted(Runnable)
+	private static final Method 	IS_VIRTUAL;				//Thread.isVirtual()
+
+	static {
+		Object builder 	= null;
+		Method unstarted = null;
+		Method isVirtual = null;
+		try {
+			builder 	= Thread.class.getMethod("ofVirtual").invoke(null);
+			unstarted 	= Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+			isVirtual 	= Thread.class.getMethod("isVirtual");
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			builder 	= null;
+			unstarted 	= null;
+			isVirtual 	= null;
+		}//catch
+		VIRTUAL_BUILDER = builder;
+		UNSTARTED 		= unstarted;
+		IS_VIRTUAL 		= isVirtual;
+	}//static
+
+
+	/**
+	 * @return true if threads of this factory are virtual threads
+	 */
+	public static boolean isVirtual() {
+		return VIRTUAL_BUILDER != null;
+	}//isVirtual
+
+	/**
+	 * Is not meant to be called per event, the check uses reflection
+	 * @return true if the thread is a virtual thread or a platform thread created by a VirtualThreadFactory in place of one
+	 */
+	public static boolean isVirtual(Thread thread) {
+		if (thread instanceof FallbackThread) {
+			return true;
+		}//if
+		if (IS_VIRTUAL == null) {
+			return false;
+		}//if
+		try {
+			return (Boolean)IS_VIRTUAL.invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}//catch
+	}//isVirtual
+
+
+	@Override
+	public Thread newThread(Runnable r) {
+		if (VIRTUAL_BUILDER != null) {
+			try {
+				return (Thread)UNSTARTED.invoke(VIRTUAL_BUILDER, r);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Could not create virtual thread", e);
+			}//catch
+		}//if
+		Thread thread = new FallbackThread(r);
+		thread.setDaemon(true);
+		return thread;
+	}//newThread
+
+
+	/**
+	 * Platform thread created if the runtime has no virtual threads
+	 */
+	private static final class FallbackThread extends Thread {
+		FallbackThread(Runnable r) {
+			super(r);
+		}//Constructor
+	}//FallbackThread
+
+}//VirtualThreadFactory
@@ -0,0 +1,13 @@
+package statistics;
+
+/**
+ * Analysis of the simulation trace, used unless the statistics are collected inline.<br>
+ * CHUNKED: the trace is read chunk by chunk into the event lists, see Statistics.collectStatistics()<br>
+ * PARALLEL: parts of the trace are summarized on all processors and merged, see ParallelTraceAnalyzer<br>
+ * PIPELINE: the trace is read, parsed, matched and aggregated by one thread each, see TracePipeline
+ */
+public enum AnalysisMode {
+	CHUNKED,
+	PARALLEL,
+	PIPELINE;
+}//AnalysisMode
@@ -0,0 +1,316 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import simulation.Priority;
+import simulation.VirtualThreadFactory;
+
+/**
+ * Thread safe trace writer which takes file I/O off the simulation threads.<br>
+ * Every platform thread encodes its events into its own buffer, no lock is shared between threads.
+ * Virtual threads (one per client, see VirtualThreadFactory) share STRIPES buffers chosen by thread id,
+ * so the memory does not grow with the number of clients.
+ * Full buffers are handed to a dedicated I/O thread through a lock-free queue,
+ * which writes them with a FileChannel and returns them for reuse. The I/O thread also writes partly filled
+ * buffers every FLUSH_NANOS, so events do not wait in a rarely used buffer until the trace is closed.<br>
+ * At most MAX_PENDING_BUFFERS full buffers wait for the I/O thread, a thread which fills another one waits.
+ * The writer takes at most (platform threads + STRIPES + MAX_PENDING_BUFFERS)*BUFFER_SIZE bytes of direct memory.<br>
+ * Events of one thread keep their order, events of different threads are interleaved buffer by buffer.
+ * @author Marten Sigwart
+ *
+ */
+public class AsyncTraceWriter implements TraceWriter {
+
+	public static final int BUFFER_SIZE 		= 64*1024;		//bytes per buffer
+	public static final int STRIPES 			= 16;			//buffers shared by virtual threads, a power of two
+	public static final int MAX_PENDING_BUFFERS = 64;			//full buffers waiting for the I/O thread (4 MB)
+	public static final long FLUSH_NANOS 		= 10000000L;	//partly filled buffers are written after 10 ms
+
+	private static final long IO_PARK_NANOS 	= 1000000L;		//I/O thread sleeps at most 1 ms when idle
+	private static final long WAIT_PARK_NANOS 	= 50000L;		//writing threads wait in steps of 50 us for the I/O thread
+
+	/**
+	 * Buffer of one platform thread or of the virtual threads of one stripe,
+	 * the lock of a platform thread buffer is only contended when the I/O thread flushes it
+	 */
+	private final class LocalBuffer {
+		private ByteBuffer 	buffer 	= takeFreeBuffer();
+		private long 		records = 0L;
+	}//LocalBuffer
+
+
+	private final FileChannel 		channel;
+	private final TraceFormat 		format;
+	private final TraceHeader 		header;
+	private final int 				recordSize;
+
+	private final ThreadLocal<LocalBuffer> 				localBuffer;
+	private final LocalBuffer[] 						stripes;			//created when first used
+	private final ConcurrentLinkedQueue<LocalBuffer> 	localBuffers;		//all thread and stripe buffers, flushed by the I/O thread
+	private final ConcurrentLinkedQueue<ByteBuffer> 	fullBuffers;		//written by the I/O thread
+	private final ConcurrentLinkedQueue<ByteBuffer> 	freeBuffers;		//written buffers for reuse
+	private final AtomicInteger 						pendingBuffers;		//handed over and not yet written
+
+	private final Thread 			ioThread;
+	private volatile boolean 		closed;
+	private volatile boolean 		finished;		//no more buffers are handed to the I/O thread
+	private volatile IOException 	ioException;
+
+
+	/**
+	 * Creates a trace file and starts the I/O thread, an existing file is truncated
+	 * @param file path to the trace file
+	 * @param format format of the trace
+	 * @param header run parameters written into the header of binary traces
+	 */
+	public AsyncTraceWriter(String file, TraceFormat format, TraceHeader header) throws IOException {
+		this.channel 		= FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+									StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.format 		= format;
+		this.header 		= header;
+		this.recordSize 	= (format == TraceFormat.BINARY) ? BinaryTraceWriter.RECORD_SIZE : TextTraceWriter.MAX_RECORD_SIZE;
+		this.stripes 		= new LocalBuffer[STRIPES];
+		this.localBuffers 	= new ConcurrentLinkedQueue<LocalBuffer>();
+		this.fullBuffers 	= new ConcurrentLinkedQueue<ByteBuffer>();
+		this.freeBuffers 	= new ConcurrentLinkedQueue<ByteBuffer>();
+		this.pendingBuffers = new AtomicInteger();
+		this.closed 		= false;
+		this.finished 		= false;
+		this.localBuffer 	= new ThreadLocal<LocalBuffer>() {
+			@Override
+			protected LocalBuffer initialValue() {
+				Thread thread = Thread.currentThread();
+				if (VirtualThreadFactory.isVirtual(thread)) {
+					return getStripe((int)thread.getId() & (STRIPES - 1));
+				}//if
+				LocalBuffer local = new LocalBuffer();
+				localBuffers.add(local);
+				return local;
+			}//initialValue
+		};
+
+		if (format == TraceFormat.BINARY) {
+			writeHeader();		//placeholder, record count is written on close
+		}//if
+
+		this.ioThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBuffers();
+			}//run
+		}, "AsyncTraceWriter");
+		this.ioThread.setDaemon(true);
+		this.ioThread.start();
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Simulation threads
+
+	@Override
+	public void writeEvent(int eventType, Priority priority, int packetId, long time) {
+		if (closed) return;
+		LocalBuffer local = localBuffer.get();
+		while (!tryWriteEvent(local, eventType, priority, packetId, time)) {
+			LockSupport.parkNanos(this, WAIT_PARK_NANOS);		//backpressure, the I/O thread is behind
+		}//while
+	}//writeEvent
+
+	/**
+	 * Encodes an event, the caller waits without holding the lock if the buffer is full and cannot be handed over
+	 * @return false if the event could not be written yet
+	 */
+	private boolean tryWriteEvent(LocalBuffer local, int eventType, Priority priority, int packetId, long time) {
+		synchronized (local) {
+			if (closed) return true;		//buffer has already been flushed by close()
+			if (local.buffer.remaining() < recordSize) {
+				if (!reservePendingBuffer() && ioThread.isAlive()) {
+					return false;
+				}//if
+				handOver(local.buffer);
+				local.buffer = takeFreeBuffer();
+			}//if
+			if (format == TraceFormat.BINARY) {
+				BinaryTraceWriter.encode(local.buffer, eventType, priority, packetId, time);
+			} else {
+				TextTraceWriter.encode(local.buffer, eventType, priority, packetId, time);
+			}//if
+			local.records++;
+			return true;
+		}//synchronized
+	}//tryWriteEvent
+
+	/**
+	 * @return the buffer of a stripe, created by the first virtual thread of the stripe
+	 */
+	private LocalBuffer getStripe(int index) {
+		synchronized (stripes) {
+			if (stripes[index] == null) {
+				stripes[index] = new LocalBuffer();
+				localBuffers.add(stripes[index]);
+			}//if
+			return stripes[index];
+		}//synchronized
+	}//getStripe
+
+	/**
+	 * Counts a buffer to be handed over
+	 * @return false if MAX_PENDING_BUFFERS buffers wait for the I/O thread
+	 */
+	private boolean reservePendingBuffer() {
+		int pending = pendingBuffers.get();
+		while (pending < MAX_PENDING_BUFFERS) {
+			if (pendingBuffers.compareAndSet(pending, pending + 1)) {
+				return true;
+			}//if
+			pending = pendingBuffers.get();
+		}//while
+		return false;
+	}//reservePendingBuffer
+
+	private ByteBuffer takeFreeBuffer() {
+		ByteBuffer buffer = freeBuffers.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}//if
+		return buffer;
+	}//takeFreeBuffer
+
+	/**
+	 * Passes a filled buffer to the I/O thread, the buffer must have been counted in pendingBuffers
+	 */
+	private void handOver(ByteBuffer buffer) {
+		buffer.flip();
+		fullBuffers.offer(buffer);
+		LockSupport.unpark(ioThread);
+	}//handOver
+
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}//isThreadSafe
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// I/O thread
+
+	private void writeBuffers() {
+		long lastFlush = System.nanoTime();
+		while (true) {
+			ByteBuffer buffer = fullBuffers.poll();
+			if (buffer != null) {
+				try {
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}//while
+				} catch (IOException e) {
+					if (ioException == null) {
+						e.printStackTrace();
+						System.out.printf("AsyncTraceWriter: Could not write trace\n");
+						ioException = e;
+					}//if
+				}//catch
+				buffer.clear();
+				freeBuffers.offer(buffer);
+				pendingBuffers.decrementAndGet();
+			} else if (finished) {
+				if (fullBuffers.isEmpty()) {
+					return;
+				}//if
+			} else {
+				LockSupport.parkNanos(this, IO_PARK_NANOS);
+			}//if
+			if (System.nanoTime() - lastFlush > FLUSH_NANOS) {
+				flushLocalBuffers();
+				lastFlush = System.nanoTime();
+			}//if
+		}//while
+	}//writeBuffers
+
+	/**
+	 * Hands over the partly filled buffers of all threads and stripes, unless the I/O thread is behind anyway
+	 */
+	private void flushLocalBuffers() {
+		for (LocalBuffer local: localBuffers) {
+			synchronized (local) {
+				if (!closed && local.buffer.position() > 0) {
+					if (!reservePendingBuffer()) {
+						return;
+					}//if
+					handOver(local.buffer);
+					local.buffer = takeFreeBuffer();
+				}//if
+			}//synchronized
+		}//for
+	}//flushLocalBuffers
+
+
+	private void writeHeader() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(TraceHeader.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.write(buffer);
+		buffer.flip();
+		long position = 0;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}//while
+		if (channel.position() < position) {
+			channel.position(position);
+		}//if
+	}//writeHeader
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Close
+
+	/**
+	 * Flushes the buffers of all threads and stripes, waits for the I/O thread and closes the trace.
+	 * Events written afterwards are ignored.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+
+		long recordCount = 0L;
+		for (LocalBuffer local: localBuffers) {
+			synchronized (local) {		//waits for a writeEvent() in progress
+				if (local.buffer.position() > 0) {
+					pendingBuffers.incrementAndGet();		//no new buffer is taken
+					handOver(local.buffer);
+					local.buffer = ByteBuffer.allocate(0);
+				}//if
+				recordCount += local.records;
+			}//synchronized
+		}//for
+
+		finished = true;
+		LockSupport.unpark(ioThread);
+		try {
+			ioThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}//catch
+
+		try {
+			if (ioException != null) {
+				throw ioException;
+			}//if
+			if (format == TraceFormat.BINARY) {
+				header.setRecordCount(recordCount);
+				writeHeader();
+			}//if
+		} finally {
+			channel.close();
+		}//finally
+	}//close
+
+}//AsyncTraceWriter
@@ -0,0 +1,147 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import simulation.Priority;
+
+/**
+ * Reads a trace written by BinaryTraceWriter.
+ * Records are decoded directly from the buffer into primitives.
+ * @author Marten Sigwart
+ *
+ */
+public class BinaryTraceReader implements TraceReader {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final FileChannel 	channel;
+	private final ByteBuffer 	buffer;
+	private final TraceHeader 	header;
+	private final long 			recordCount;
+	private long 				recordsLeft;		//records left to read
+
+	private int 	eventType;
+	private int 	priority;
+	private int 	packetId;
+	private long 	time;
+
+
+	/**
+	 * Opens a binary trace file and reads its header
+	 * @param file path to the trace file
+	 * @throws IOException if the file is not a valid binary trace
+	 */
+	public BinaryTraceReader(String file) throws IOException {
+		this(file, 0L, Long.MAX_VALUE);
+	}//Constructor
+
+	/**
+	 * Opens a range of records of a binary trace file, e.g. a part of a trace analysed in parallel
+	 * @param file path to the trace file
+	 * @param firstRecord index of the first record to read
+	 * @param records number of records to read, is limited to the records in the trace
+	 * @throws IOException if the file is not a valid binary trace
+	 */
+	public BinaryTraceReader(String file, long firstRecord, long records) throws IOException {
+		this.channel 	= FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		this.buffer 	= ByteBuffer.allocateDirect(BinaryTraceWriter.BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.buffer.limit(0);
+		fill();
+		try {
+			this.header = TraceHeader.read(buffer);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}//catch
+
+		// Header of a trace which was not closed properly contains no record count
+		long recordsInFile = (channel.size() - TraceHeader.HEADER_SIZE)/BinaryTraceWriter.RECORD_SIZE;
+		this.recordCount = (header.getRecordCount() > 0) ? Math.min(header.getRecordCount(), recordsInFile) : recordsInFile;
+		this.recordsLeft = Math.max(0L, Math.min(records, recordCount - firstRecord));
+		if (firstRecord > 0) {
+			channel.position(TraceHeader.HEADER_SIZE + firstRecord*BinaryTraceWriter.RECORD_SIZE);
+			buffer.limit(0);
+		}//if
+	}//Constructor
+
+
+	public TraceHeader getHeader() {
+		return header;
+	}//getHeader
+
+	/**
+	 * @return the number of records in the trace
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}//getRecordCount
+
+
+	/**
+	 * Reads from the channel until the buffer is full or the end of file is reached
+	 */
+	private void fill() throws IOException {
+		buffer.compact();
+		while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			//read
+		}//while
+		buffer.flip();
+	}//fill
+
+
+	@Override
+	public boolean next() throws IOException {
+		if (!channel.isOpen() || recordsLeft == 0) {
+			return false;
+		}//if
+		if (buffer.remaining() < BinaryTraceWriter.RECORD_SIZE) {
+			fill();
+			if (buffer.remaining() < BinaryTraceWriter.RECORD_SIZE) {
+				return false;
+			}//if
+		}//if
+		eventType 	= buffer.get();
+		priority 	= buffer.get();
+		buffer.getShort();
+		packetId 	= buffer.getInt();
+		time 		= buffer.getLong();
+		recordsLeft--;
+		if (eventType < 0 || eventType >= Event.NUMBER_OF_EVENTS || priority < 0 || priority >= PRIORITIES.length) {
+			eventType 	= Event.EVENT_TYPE_UNKNOWN;			//corrupt record, counted as unknown event
+			priority 	= Priority.PACKET_PRIORITY_LOW.ordinal();
+		}//if
+		return true;
+	}//next
+
+
+	@Override
+	public int getEventType() {
+		return eventType;
+	}//getEventType
+
+	@Override
+	public Priority getPriority() {
+		return PRIORITIES[priority];
+	}//getPriority
+
+	@Override
+	public int getPacketId() {
+		return packetId;
+	}//getPacketId
+
+	@Override
+	public long getTime() {
+		return time;
+	}//getTime
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}//close
+
+}//BinaryTraceReader
@@ -0,0 +1,107 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import simulation.Priority;
+
+/**
+ * Writes events as fixed width binary records after a TraceHeader.<br>
+ * Record layout (little endian, RECORD_SIZE bytes):<br>
+ * event type (byte), priority ordinal (byte), reserved (short), packet id (int), time in ns (long)
+ * @author Marten Sigwart
+ *
+ */
+public class BinaryTraceWriter implements TraceWriter {
+
+	public static final int RECORD_SIZE = 16;		//bytes
+	public static final int BUFFER_SIZE = 64*1024;	//bytes, multiple of RECORD_SIZE
+
+	private final FileChannel 	channel;
+	private final ByteBuffer 	buffer;
+	private final TraceHeader 	header;
+	private long 				recordCount;
+	private boolean 			closed;
+
+
+	/**
+	 * Creates a binary trace file, an existing file is truncated
+	 * @param file path to the trace file
+	 * @param header run parameters written into the header
+	 */
+	public BinaryTraceWriter(String file, TraceHeader header) throws IOException {
+		this.channel 		= FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+									StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer 		= ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		this.header 		= header;
+		this.recordCount 	= 0L;
+		this.closed 		= false;
+		header.write(buffer);		//placeholder, record count is written on close
+	}//Constructor
+
+
+	/**
+	 * Encodes one record at the current position of the buffer
+	 */
+	public static void encode(ByteBuffer buffer, int eventType, Priority priority, int packetId, long time) {
+		buffer.put((byte)eventType);
+		buffer.put((byte)priority.ordinal());
+		buffer.putShort((short)0);
+		buffer.putInt(packetId);
+		buffer.putLong(time);
+	}//encode
+
+
+	@Override
+	public void writeEvent(int eventType, Priority priority, int packetId, long time) {
+		if (closed) return;
+		try {
+			if (buffer.remaining() < RECORD_SIZE) {
+				flush();
+			}//if
+			encode(buffer, eventType, priority, packetId, time);
+			recordCount++;
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.printf("BinaryTraceWriter: Could not write event\n");
+		}//catch
+	}//writeEvent
+
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}//while
+		buffer.clear();
+	}//flush
+
+
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}//isThreadSafe
+
+
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		flush();
+
+		// Rewrite header with final record count
+		header.setRecordCount(recordCount);
+		header.write(buffer);
+		buffer.flip();
+		long position = 0;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}//while
+		channel.close();
+	}//close
+
+}//BinaryTraceWriter
@@ -0,0 +1,88 @@
+package statistics;
+
+import simulation.Time;
+
+/**
+ * Streaming queue time statistics of one priority, used in inline mode.
+ * Queue times are fed in at dequeue time, no events are stored.
+ * Only the dequeuing thread (SendConnection) may call record().
+ * @author Marten Sigwart
+ *
+ */
+public class DelayAccumulator {
+
+	private DelaySummary 	summary;
+	private DelayHistogram 	queueTimes;			//in microseconds
+
+
+	/**
+	 * Creates an accumulator
+	 * @param thresholds delays in microseconds for which the queue times above are counted, see DelaySummary
+	 */
+	public DelayAccumulator(int... thresholds) {
+		this.summary 	= new DelaySummary(thresholds);
+		this.queueTimes = new DelayHistogram();
+	}//Constructor
+
+
+	/**
+	 * Records the queue time of a dequeued packet
+	 * @param queueTime the queue time in nanoseconds
+	 */
+	public void record(long queueTime) {
+		summary.record(queueTime);
+		queueTimes.record(queueTime/Time.NANOSEC_PER_MICROSEC);
+	}//record
+
+	/**
+	 * Records the queue times of dequeued packets
+	 * @param queueTimes queue times in nanoseconds
+	 * @param from index of the first queue time
+	 * @param to index after the last queue time
+	 */
+	public void recordAll(long[] queueTimes, int from, int to) {
+		summary.recordAll(queueTimes, from, to);
+		for (int i=from; i<to; i++) {
+			this.queueTimes.record(queueTimes[i]/Time.NANOSEC_PER_MICROSEC);
+		}//for
+	}//recordAll
+
+	/**
+	 * Adds the queue times recorded by another accumulator, e.g. of a part of a trace
+	 */
+	public void add(DelayAccumulator other) {
+		summary.merge(other.summary);
+		queueTimes.add(other.queueTimes);
+	}//add
+
+
+	public long getCount() {
+		return summary.getCount();
+	}//getCount
+
+	public long getSum() {
+		return summary.getSum();
+	}//getSum
+
+	/**
+	 * @return the average queue time in nanoseconds
+	 */
+	public long getAverage() {
+		return (long)summary.getMean();
+	}//getAverage
+
+	/**
+	 * @return count, mean, variance, extremes and threshold counters of the queue times
+	 */
+	public DelaySummary getSummary() {
+		return summary;
+	}//getSummary
+
+	/**
+	 * @return the histogram of the queue times in microseconds
+	 */
+	public DelayHistogram getQueueTimes() {
+		return queueTimes;
+	}//getQueueTimes
+
+}//DelayAccumulator
@@ -0,0 +1,185 @@
+package statistics;
+
+/**
+ * Fixed memory histogram with log-linear buckets (HdrHistogram style).<br>
+ * Values below 2^precisionBits are counted exactly, above each power of two range
+ * is split into 2^(precisionBits-1) buckets, so the relative error of a value is below 2^-(precisionBits-1).
+ * Recording is O(1), counts above a threshold and percentiles are O(buckets).
+ * Memory does not depend on the number of recorded values. Not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+public class DelayHistogram {
+
+	public static final int  DEFAULT_PRECISION_BITS 	= 10;			//exact up to 1023, 0.2% above
+	public static final long DEFAULT_MAX_VALUE			= 1L << 40;		//larger values are counted as max value
+
+	private final int 		precisionBits;
+	private final int 		subBucketCount;			//2^precisionBits, values below are counted exactly
+	private final int 		subBucketHalfCount;		//buckets per power of two range above
+	private final long 		maxValue;
+	private final long[] 	counts;
+	private long 			totalCount;
+
+
+	public DelayHistogram() {
+		this(DEFAULT_PRECISION_BITS, DEFAULT_MAX_VALUE);
+	}//Constructor
+
+	/**
+	 * Creates a new histogram
+	 * @param precisionBits number of significant bits of a value kept (1 to 30)
+	 * @param maxValue highest value which is counted in its own bucket
+	 */
+	public DelayHistogram(int precisionBits, long maxValue) {
+		if (precisionBits < 1 || precisionBits > 30) {
+			throw new IllegalArgumentException("Precision must be between 1 and 30 bits: " + precisionBits);
+		}//if
+		this.precisionBits 		= precisionBits;
+		this.subBucketCount 	= 1 << precisionBits;
+		this.subBucketHalfCount = subBucketCount >>> 1;
+		this.maxValue 			= Math.max(maxValue, subBucketCount - 1);
+		this.counts 			= new long[bucketIndex(this.maxValue) + 1];
+		this.totalCount 		= 0L;
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Bucket arithmetic
+
+	/**
+	 * @return the index of the bucket containing the value
+	 */
+	private int bucketIndex(long value) {
+		if (value < subBucketCount) {
+			return (int)value;
+		}//if
+		int msb 	= 63 - Long.numberOfLeadingZeros(value);	//>= precisionBits
+		int shift 	= msb - precisionBits + 1;
+		return subBucketCount + (msb - precisionBits)*subBucketHalfCount + (int)((value >>> shift) - subBucketHalfCount);
+	}//bucketIndex
+
+	/**
+	 * @return the lowest value counted in the bucket
+	 */
+	private long lowestValue(int index) {
+		if (index < subBucketCount) {
+			return index;
+		}//if
+		int k 		= index - subBucketCount;
+		int shift 	= k/subBucketHalfCount + 1;
+		long sub 	= (k % subBucketHalfCount) + subBucketHalfCount;
+		return sub << shift;
+	}//lowestValue
+
+	/**
+	 * @return the highest value counted in the bucket
+	 */
+	private long highestValue(int index) {
+		if (index < subBucketCount) {
+			return index;
+		}//if
+		int shift = (index - subBucketCount)/subBucketHalfCount + 1;
+		return lowestValue(index) + (1L << shift) - 1;
+	}//highestValue
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Recording
+
+	/**
+	 * Records a value, negative values are counted as 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		} else if (value > maxValue) {
+			value = maxValue;
+		}//if
+		counts[bucketIndex(value)]++;
+		totalCount++;
+	}//record
+
+	/**
+	 * Adds all counts of another histogram with the same precision
+	 */
+	public void add(DelayHistogram other) {
+		if (other.precisionBits != precisionBits || other.counts.length != counts.length) {
+			throw new IllegalArgumentException("Histograms have different precision");
+		}//if
+		for (int i=0; i<counts.length; i++) {
+			counts[i] += other.counts[i];
+		}//for
+		totalCount += other.totalCount;
+	}//add
+
+	public void clear() {
+		for (int i=0; i<counts.length; i++) {
+			counts[i] = 0L;
+		}//for
+		totalCount = 0L;
+	}//clear
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Queries
+
+	public long getTotalCount() {
+		return totalCount;
+	}//getTotalCount
+
+	public int getPrecisionBits() {
+		return precisionBits;
+	}//getPrecisionBits
+
+	/**
+	 * Counts the values greater than the threshold. Exact for thresholds below 2^precisionBits,
+	 * above the count of the bucket containing the threshold is interpolated.
+	 * @param threshold the threshold
+	 * @return the number of recorded values greater than threshold
+	 */
+	public long getCountAbove(long threshold) {
+		if (threshold < 0) {
+			return totalCount;
+		}//if
+		if (threshold >= maxValue) {
+			return 0L;
+		}//if
+		int index = bucketIndex(threshold);
+		long count = 0L;
+		for (int i=index+1; i<counts.length; i++) {
+			count += counts[i];
+		}//for
+
+		// Part of the bucket containing the threshold
+		long high = highestValue(index);
+		if (high > threshold && counts[index] > 0) {
+			long width = high - lowestValue(index) + 1;
+			count += (counts[index]*(high - threshold) + width/2)/width;
+		}//if
+		return count;
+	}//getCountAbove
+
+	/**
+	 * @param percentile the percentile (0 to 100)
+	 * @return the highest value of the bucket containing the percentile, 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0L;
+		}//if
+		long rank = (long)Math.ceil(Math.min(Math.max(percentile, 0.0), 100.0)/100.0*totalCount);
+		if (rank < 1) {
+			rank = 1;
+		}//if
+		long cumulative = 0L;
+		for (int i=0; i<counts.length; i++) {
+			cumulative += counts[i];
+			if (cumulative >= rank) {
+				return highestValue(i);
+			}//if
+		}//for
+		return maxValue;
+	}//getValueAtPercentile
+
+}//DelayHistogram
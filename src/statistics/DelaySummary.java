@@ -0,0 +1,280 @@
+package statistics;
+
+import java.util.Arrays;
+
+import simulation.Time;
+
+/**
+ * Mergeable summary of queue times: count, sum, mean and variance (Welford), minimum, maximum and the
+ * number of queue times above each threshold.<br>
+ * merge() combines the summaries of parts of a trace, of threads or of replications (Chan et al.), it is
+ * associative, so partial summaries can be merged in any grouping without the events. Thresholds are fixed
+ * when the first queue time is recorded; merged summaries keep the thresholds both summaries count,
+ * an empty summary takes over the thresholds of the other one.<br>
+ * recordAll() summarizes arrays of queue times block by block with branch-free loops over primitive longs,
+ * which the JIT compiles to SIMD instructions, every queue time is read once for all thresholds.
+ * Not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+public class DelaySummary {
+
+	public static final int BLOCK_SIZE = 2048;		//queue times summarized at once by recordAll(), fits into the L1 cache
+
+	private int[] 	thresholds;			//in microseconds, ascending
+	private long[] 	limits;				//shortest queue time in nanoseconds above the threshold of the same index
+	private long[] 	countsAbove;		//queue times above the threshold of the same index
+
+	private long 	count;
+	private long 	sum;				//in nanoseconds
+	private double 	mean;				//in nanoseconds
+	private double 	m2;					//sum of squared differences from the mean
+	private long 	min;
+	private long 	max;
+
+
+	/**
+	 * Creates an empty summary
+	 * @param thresholds delays in microseconds for which the queue times above are counted
+	 */
+	public DelaySummary(int... thresholds) {
+		this.thresholds 	= new int[0];
+		this.limits 		= new long[0];
+		this.countsAbove 	= new long[0];
+		for (int threshold: thresholds) {
+			addThreshold(threshold);
+		}//for
+		this.count 	= 0L;
+		this.sum 	= 0L;
+		this.mean 	= 0.0;
+		this.m2 	= 0.0;
+		this.min 	= Long.MAX_VALUE;
+		this.max 	= Long.MIN_VALUE;
+	}//Constructor
+
+
+	/**
+	 * Counts the queue times above a delay, only before the first queue time is recorded
+	 * @param threshold the delay in microseconds, not negative
+	 * @throws IllegalStateException if queue times have been recorded
+	 */
+	public void addThreshold(int threshold) {
+		if (count > 0) {
+			throw new IllegalStateException("Thresholds must be added before the first queue time");
+		}//if
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+		}//if
+		if (hasThreshold(threshold)) {
+			return;
+		}//if
+		thresholds 	= Arrays.copyOf(thresholds, thresholds.length + 1);
+		thresholds[thresholds.length - 1] = threshold;
+		Arrays.sort(thresholds);
+		setLimits();
+		countsAbove = new long[thresholds.length];
+	}//addThreshold
+
+	/**
+	 * A queue time is above a threshold if its whole microseconds are, i.e. if it is at least (threshold + 1) microseconds
+	 */
+	private void setLimits() {
+		limits = new long[thresholds.length];
+		for (int i=0; i<thresholds.length; i++) {
+			limits[i] = (thresholds[i] + 1L)*Time.NANOSEC_PER_MICROSEC;
+		}//for
+	}//setLimits
+
+
+	/**
+	 * Records a queue time
+	 * @param queueTime the queue time in nanoseconds
+	 */
+	public void record(long queueTime) {
+		count++;
+		sum += queueTime;
+		double delta = queueTime - mean;
+		mean += delta/count;
+		m2 	 += delta*(queueTime - mean);
+		if (queueTime < min) {
+			min = queueTime;
+		}//if
+		if (queueTime > max) {
+			max = queueTime;
+		}//if
+		for (int i=0; i<limits.length && queueTime >= limits[i]; i++) {
+			countsAbove[i]++;
+		}//for
+	}//record
+
+	/**
+	 * Records queue times, gives the same summary as record() for every queue time
+	 * @param queueTimes queue times in nanoseconds
+	 * @param from index of the first queue time
+	 * @param to index after the last queue time
+	 */
+	public void recordAll(long[] queueTimes, int from, int to) {
+		for (int start=from; start<to; start+=BLOCK_SIZE) {
+			recordBlock(queueTimes, start, Math.min(start + BLOCK_SIZE, to));
+		}//for
+	}//recordAll
+
+	/**
+	 * Summarizes a block of queue times and adds the summary, one loop per statistic so that the loops vectorize
+	 */
+	private void recordBlock(long[] queueTimes, int from, int to) {
+		long blockSum = 0L;
+		long blockMin = Long.MAX_VALUE;
+		long blockMax = Long.MIN_VALUE;
+		for (int i=from; i<to; i++) {
+			long queueTime = queueTimes[i];
+			blockSum += queueTime;
+			blockMin = Math.min(blockMin, queueTime);
+			blockMax = Math.max(blockMax, queueTime);
+		}//for
+		int 	n 			= to - from;
+		double 	blockMean 	= (double)blockSum/n;
+		double 	blockM2 	= 0.0;
+		for (int i=from; i<to; i++) {
+			double delta = queueTimes[i] - blockMean;
+			blockM2 += delta*delta;
+		}//for
+		for (int t=0; t<limits.length; t++) {
+			long limit = limits[t];
+			long above = 0L;
+			for (int i=from; i<to; i++) {
+				above += (queueTimes[i] - limit) >>> 63 ^ 1L;		//1 if the queue time is at least the limit
+			}//for
+			countsAbove[t] += above;
+		}//for
+		add(n, blockSum, blockMean, blockM2, blockMin, blockMax);
+	}//recordBlock
+
+	/**
+	 * Adds the queue times summarized by another summary
+	 * @return this summary
+	 */
+	public DelaySummary merge(DelaySummary other) {
+		if (other.count == 0) {
+			return this;
+		}//if
+		if (count == 0) {
+			thresholds 	= other.thresholds.clone();
+			limits 		= other.limits.clone();
+			countsAbove = other.countsAbove.clone();
+		} else {
+			mergeThresholds(other);
+		}//if
+		add(other.count, other.sum, other.mean, other.m2, other.min, other.max);
+		return this;
+	}//merge
+
+	/**
+	 * Adds the statistics of other queue times, the threshold counters are not changed
+	 */
+	private void add(long otherCount, long otherSum, double otherMean, double otherM2, long otherMin, long otherMax) {
+		long n 		 = count + otherCount;
+		double delta = otherMean - mean;
+		mean 		+= delta*otherCount/n;
+		m2 			+= otherM2 + delta*delta*((double)count*otherCount/n);
+		count 		 = n;
+		sum 		+= otherSum;
+		min 		 = Math.min(min, otherMin);
+		max 		 = Math.max(max, otherMax);
+	}//add
+
+	/**
+	 * Adds the counters of the other summary, thresholds only one of the summaries counts are dropped
+	 */
+	private void mergeThresholds(DelaySummary other) {
+		int[] 	common 		= new int[thresholds.length];
+		long[] 	commonCounts = new long[thresholds.length];
+		int 	size 		= 0;
+		for (int i=0; i<thresholds.length; i++) {
+			int j = Arrays.binarySearch(other.thresholds, thresholds[i]);
+			if (j >= 0) {
+				common[size] 		= thresholds[i];
+				commonCounts[size] 	= countsAbove[i] + other.countsAbove[j];
+				size++;
+			}//if
+		}//for
+		thresholds 	= Arrays.copyOf(common, size);
+		countsAbove = Arrays.copyOf(commonCounts, size);
+		setLimits();
+	}//mergeThresholds
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Getters
+
+	public long getCount() {
+		return count;
+	}//getCount
+
+	/**
+	 * @return the sum of the queue times in nanoseconds
+	 */
+	public long getSum() {
+		return sum;
+	}//getSum
+
+	/**
+	 * @return the mean queue time in nanoseconds, 0 if no queue time has been recorded
+	 */
+	public double getMean() {
+		return mean;
+	}//getMean
+
+	/**
+	 * @return the sample variance of the queue times in square nanoseconds, 0 for less than two queue times
+	 */
+	public double getVariance() {
+		return (count > 1) ? m2/(count - 1) : 0.0;
+	}//getVariance
+
+	/**
+	 * @return the sample standard deviation of the queue times in nanoseconds
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}//getStandardDeviation
+
+	/**
+	 * @return the shortest queue time in nanoseconds, 0 if no queue time has been recorded
+	 */
+	public long getMin() {
+		return (count > 0) ? min : 0L;
+	}//getMin
+
+	/**
+	 * @return the longest queue time in nanoseconds, 0 if no queue time has been recorded
+	 */
+	public long getMax() {
+		return (count > 0) ? max : 0L;
+	}//getMax
+
+	/**
+	 * @return the delays in microseconds for which the queue times above are counted, ascending
+	 */
+	public int[] getThresholds() {
+		return thresholds.clone();
+	}//getThresholds
+
+	public boolean hasThreshold(int threshold) {
+		return Arrays.binarySearch(thresholds, threshold) >= 0;
+	}//hasThreshold
+
+	/**
+	 * @param threshold a delay in microseconds
+	 * @return the number of queue times above the delay (compared in whole microseconds)
+	 * @throws IllegalArgumentException if the queue times above the delay are not counted
+	 */
+	public long getCountAbove(int threshold) {
+		int i = Arrays.binarySearch(thresholds, threshold);
+		if (i < 0) {
+			throw new IllegalArgumentException("Queue times above " + threshold + " microseconds are not counted");
+		}//if
+		return countsAbove[i];
+	}//getCountAbove
+
+}//DelaySummary
@@ -1,6 +1,6 @@
 package statistics;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 
 import simulation.Client;
 import simulation.Packet;
@@ -23,41 +23,18 @@ public class Event {
 	
 	
 	/**
-	 * Creates an event from a specified string line
+	 * Creates an event from a specified string line, see TextEventParser
 	 * @param strEvent the string line
 	 * @return the created Event object
+	 * @throws IllegalArgumentException if the line does not contain a time and a packet id
 	 */
 	public static Event createEventFromString(String strEvent){
-		int eventType;
-		Priority packetPriority;
-		
-		if( strEvent.toLowerCase().contains("DEQUEUE".toLowerCase()) ) {
-			eventType = EVENT_TYPE_DEQUEUE;
-		}//if
-		else if ( strEvent.toLowerCase().contains("ENQUEUE".toLowerCase()) ) {
-			eventType = EVENT_TYPE_ENQUEUE;
-		} else {
-			eventType = EVENT_TYPE_UNKNOWN;
+		byte[] line = strEvent.getBytes(StandardCharsets.ISO_8859_1);
+		TextEventParser parser = new TextEventParser();
+		if (!parser.parse(line, 0, line.length)) {
+			throw new IllegalArgumentException("Not an event: " + strEvent);
 		}//if
-		
-		
-		if ( strEvent.toLowerCase().contains("PACKET_PRIORITY_HIGH".toLowerCase()) ) {
-			packetPriority = Priority.PACKET_PRIORITY_HIGH;
-		} 
-		else {
-			packetPriority = Priority.PACKET_PRIORITY_LOW;
-		}//if
-		
-		
-		String []newDigits = (strEvent.replaceAll("[^0-9. ]", "")).split(" ",-1); //removes non numeric chars and slipts the String 
-		ArrayList <String> parts = new ArrayList<String>();
-		
-		for(int i = 0; i < newDigits.length; i++){
-			if(!newDigits[i].isEmpty()) // if the string is not empty adds a new digit to the array of parts
-				parts.add(newDigits[i]);
-		}//for
-
-		return new Event( eventType, Long.parseLong(parts.get(0)), new Packet( Integer.parseInt(parts.get(1)), packetPriority ) );
+		return new Event(parser.getEventType(), parser.getTime(), new Packet(parser.getPacketId(), parser.getPriority()));
 		
 	}//addEventFromString
 	
@@ -102,13 +79,21 @@ public class Event {
 	
 	@Override
 	public String toString(){
+		return toString(eventType, creationTime, packet.getId(), packet.getPriority());
+	}//toString
+	
+	/**
+	 * Creates the trace line of an event, used by the text trace format
+	 * @return the line without line separator
+	 */
+	public static String toString(int eventType, long creationTime, int packetId, Priority priority){
 		switch (eventType) {
 			case EVENT_TYPE_DEQUEUE:
-				return "DEQUEUE  at (" + creationTime + "): " + "Packet " + packet.getId() + " - Priority " + packet.getPriority();
+				return "DEQUEUE  at (" + creationTime + "): " + "Packet " + packetId + " - Priority " + priority;
 			case EVENT_TYPE_ENQUEUE:
-				return "ENQUEUE at (" + creationTime + "): " + "Packet " + packet.getId() + " - Priority " + packet.getPriority();
+				return "ENQUEUE at (" + creationTime + "): " + "Packet " + packetId + " - Priority " + priority;
 			default:
-				return "UNKNOWN at (" + creationTime + "): " + "Packet " + packet.getId() + " - Priority " + packet.getPriority();
+				return "UNKNOWN at (" + creationTime + "): " + "Packet " + packetId + " - Priority " + priority;
 		}//switch
 
 	}//toString
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import simulation.Packet;
 import simulation.Priority;
 import simulation.Time;
 
@@ -12,15 +13,14 @@ import simulation.Time;
 public class EventList {
 	
 	private Priority						priority;
-	private Map<Integer, ArrayList<Event>> 	events;
-	private ArrayList<Long>					queueTimes;
-	private long 			 				avrgQueueTime;			// average queuing time in nanoseconds
+	private SlidingWindowMatcher			events;					// pending ENQUEUE and DEQUEUE times by packet id
+	private DelayHistogram					queueTimes;				// queuing times in microseconds
+	private DelaySummary					queueTimeSummary;		// count, mean, variance and extremes of the queuing times
 	private int 			 				enqueueEventCount;
 	private int 			 				dequeueEventCount;
 	/*private int 			 				countDelayed;
 	private double 			 				percentDelayed;
 	*/
-	private boolean							hasAverage;
 	
 	private Map<Integer, DelayStat>			delayStatistics;
 
@@ -28,11 +28,19 @@ public class EventList {
 
 
 	public EventList(Priority p) {
+		this(p, DelayHistogram.DEFAULT_PRECISION_BITS);
+	}//Constructor
+	
+	/**
+	 * Creates a new event list
+	 * @param p the priority of the events
+	 * @param histogramPrecision precision in bits of the queue time histogram, see DelayHistogram
+	 */
+	public EventList(Priority p, int histogramPrecision) {
 		this.priority			= p;
-		this.events 			= new HashMap<Integer, ArrayList<Event>>();
-		this.queueTimes			= new ArrayList<Long>();
-		this.avrgQueueTime 		= 0L;
-		this.hasAverage			= false;
+		this.events 			= new SlidingWindowMatcher();
+		this.queueTimes			= new DelayHistogram(histogramPrecision, DelayHistogram.DEFAULT_MAX_VALUE);
+		this.queueTimeSummary	= new DelaySummary();
 
 		this.enqueueEventCount 	= 0;
 		this.dequeueEventCount 	= 0;
@@ -47,19 +55,40 @@ public class EventList {
 
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%		
 // Getters for stats
-	public Map<Integer, ArrayList<Event>> getEvents() {
+	public SlidingWindowMatcher getEvents() {
 		return events;
 	}//getEvents
 	
 	
-	public ArrayList<Long> getQueueTimes() {
+	/**
+	 * @return the histogram of all queue times in microseconds
+	 */
+	public DelayHistogram getQueueTimes() {
 		return queueTimes;
 	}//getQueueTimes
 	
+	/**
+	 * @param percentile the percentile (0 to 100)
+	 * @return the queue time in microseconds below which the percentage of packets lies
+	 */
+	public long getQueueTimePercentile(double percentile) {
+		return queueTimes.getValueAtPercentile(percentile);
+	}//getQueueTimePercentile
+	
 	
+	/**
+	 * @return the average queuing time in nanoseconds
+	 */
 	public long getAvrgQueueTime() {
-		return avrgQueueTime;
+		return (long)queueTimeSummary.getMean();
 	}//getAvrgQueueTime
+	
+	/**
+	 * @return count, mean, variance, extremes and threshold counters of all queue times
+	 */
+	public DelaySummary getQueueTimeSummary() {
+		return queueTimeSummary;
+	}//getQueueTimeSummary
 
 	public int getEventCount(int eventType) {
 		if (eventType == Event.EVENT_TYPE_ENQUEUE) {
@@ -105,19 +134,9 @@ public class EventList {
 	
 	
 	public boolean isAverageSet() {
-		return hasAverage;
+		return queueTimeSummary.getCount() > 0;
 	}//isAverageSet
-
-
-	public void setHasAverage(boolean hasAverage) {
-		this.hasAverage = hasAverage;
-	}//setHasAverage
-	
-	
 	
-	public void setAvrgQueueTime(long avrgQueueTime) {
-		this.avrgQueueTime = avrgQueueTime;
-	}//setAvrgQueueTime
 
 	public void setEnqueueEventCount(int count) {
 		this.enqueueEventCount = count;
@@ -154,11 +173,22 @@ public class EventList {
 // Wrapper methods for HashMap and List
 
 	public void add(Event event) {
-		this.events.get(event.getPacket().getId()).add(event.getEventType(), event);
+		set(event);
 	}//add
 	
 	public void set(Event event) {
-		this.events.get(event.getPacket().getId()).set(event.getEventType(), event);
+		set(event.getEventType(), event.getPacket().getId(), event.getCreationTime());
+	}//set
+	
+	/**
+	 * Sets the time of an event of a packet without an Event object.
+	 * If the other event of the packet has been set before, the queue time is added and the packet is removed.
+	 */
+	public void set(int eventType, int packetId, long time) {
+		long queueTime = this.events.add(eventType, packetId, time);
+		if (queueTime != PacketEventTable.NO_EVENT) {
+			addQueueTime(queueTime);
+		}//if
 	}//set
 	
 	/*public void addQueueTime(Long queueTime) {
@@ -167,11 +197,24 @@ public class EventList {
 	*/
 	
 	public List<Event> remove(int key) {
-		return this.events.remove(key);
+		List<Event> pEvents = get(key);
+		this.events.remove(key);
+		return pEvents;
 	}//remove
 	
+	/**
+	 * @return the events of the packet, null elements for missing events<br>
+	 * 		   null if the packet has no events
+	 */
 	public List<Event> get(int key) {
-		return this.events.get(key);
+		if (!this.events.contains(key)) {
+			return null;
+		}//if
+		ArrayList<Event> pEvents = new ArrayList<Event>(Event.NUMBER_OF_EVENTS);
+		for (int i=0; i<Event.NUMBER_OF_EVENTS; i++) {
+			pEvents.add(retrieveEvent(key, i));
+		}//for
+		return pEvents;
 	}//get
 	
 	public int size() {
@@ -182,11 +225,6 @@ public class EventList {
 		this.events.clear();
 	}//clear
 	
-	public void put(Integer key, ArrayList<Event> list) {
-		this.events.put(key, list);
-	}//events
-	
-	
 	/**
 	 * Helper method which will return an event of specified priority, packet id, and event type
 	 * @param packetId the packet id included in event
@@ -195,14 +233,11 @@ public class EventList {
 	 * 		   returns null if it's not found
 	 */
 	public Event retrieveEvent(int packetId, int eventType) {
-		ArrayList<Event> pEvents = this.events.get(packetId);
-		Event ev = null;
-		try {
-			ev = pEvents.get(eventType);
-		} catch (NullPointerException ne) {
+		long time = this.events.getTime(packetId, eventType);
+		if (time == PacketEventTable.NO_EVENT) {
 			return null;
-		}//catch
-		return ev;//pEvents.get(eventType);
+		}//if
+		return new Event(eventType, time, new Packet(packetId, priority));
 	}//retrieveEvent
 	
 	
@@ -224,40 +259,34 @@ public class EventList {
 // Update EventList statistics
 	
 	public void updateEventListStats(Event event) {
-		updateEventCounter(event);
+		updateEventCounter(event.getEventType());
 		
 	}//updateEventListStats
 	
+	/**
+	 * Counts an event of the specified type
+	 */
+	public void updateEventListStats(int eventType) {
+		updateEventCounter(eventType);
+	}//updateEventListStats
+	
 	
-	public void addQueueTime(int packetId) {
-		long queueTime;
-		Event de, ee;
-		ee = retrieveEvent(packetId, Event.EVENT_TYPE_ENQUEUE);
-		if (ee == null) {
-			System.out.printf("ERROR: %s Packet %d has no ENQUEUE event\n", priority, packetId);
-			return;
-		} else {
-			de = retrieveEvent(packetId, Event.EVENT_TYPE_DEQUEUE);
-			if (de == null) {
-				return;
-				//System.out.printf("WARNING: %s Packet %d has not been sent yet\n", priority, packetId);
-			} else {
-				queueTime = de.getCreationTime() - ee.getCreationTime();
-				this.queueTimes.add(queueTime);
-				updateAvrgQueueTime(queueTime);
-				//System.out.printf("Packet %d: QueueTime = %d\n", packetId, queueTime);
-			}//if
-		}//if
-
+	/**
+	 * Adds the queue time of a packet whose ENQUEUE and DEQUEUE event have been set
+	 * @param queueTime the queue time in nanoseconds
+	 */
+	private void addQueueTime(long queueTime) {
+		this.queueTimes.record(queueTime/Time.NANOSEC_PER_MICROSEC);
+		this.queueTimeSummary.record(queueTime);
 	}//addQueueTime
 	
 	
 	/**
 	 * Updates the event counters
-	 * @param event
+	 * @param eventType
 	 */
-	private void updateEventCounter(Event event) {
-		switch (event.getEventType()) {
+	private void updateEventCounter(int eventType) {
+		switch (eventType) {
 			
 			case Event.EVENT_TYPE_ENQUEUE:
 				incEnqueueEventCount();
@@ -296,45 +325,16 @@ public class EventList {
 	
 	
 	/**
-	 * Updates the averageQueueTime
-	 * @param event the event that causes the update
-	 */
-	private void updateAvrgQueueTime(long queueTime) {
-		long newAvrgTime;
-		//double newPercDelayed;
-		
-		if (!isAverageSet()) {
-			setAvrgQueueTime(queueTime);		// First average calculation --> don't divide by 2!!!
-			System.out.printf("FIRST  new average: %d\n", queueTime);
-			setHasAverage(true);
-		} else {
-			newAvrgTime = ((getAvrgQueueTime() + queueTime)/2);
-			setAvrgQueueTime(newAvrgTime);
-			//System.out.printf("%s new average: %d\n", event.getPacket().getPriority(), newAvrgTime);
-		}//if
-
-		
-	}//updateAvrgQueueTimes
-	
-
-	
-	/**
-	 * 
-	 * @param delay
+	 * Counts the packets with a queue time above the delay, exact if the queue time summary counts the delay,
+	 * otherwise from the histogram of all queue times (exact for delays below 2^precision microseconds).
+	 * @param delay in microseconds
 	 * @return returns the number of packets with a delay of the specified delay
 	 */
 	public int calculateDelayedCount(int delay) {
 
-		int countDelayed = 0;
 		double newPercDelayed = 0.0;
-		for (long qTime: queueTimes) {
-			if ((qTime/Time.NANOSEC_PER_MICROSEC) > delay) {	//update delayed count
-				countDelayed++;
-			}//if
-		}//for
-//		System.out.printf("Queue %s: Delay %d: OLD Count: %d\n", priority, delay, delayStatistics.get(delay).getCountDelayed());
-		delayStatistics.get(delay).addDelayCount(countDelayed);
-//		System.out.printf("Queue %s: Delay %d: NEW Count: %d\n", priority, delay, delayStatistics.get(delay).getCountDelayed());
+		long countDelayed = queueTimeSummary.hasThreshold(delay) ? queueTimeSummary.getCountAbove(delay) : queueTimes.getCountAbove(delay);
+		delayStatistics.get(delay).setDelayCount((int)countDelayed);
 
 		newPercDelayed = (double)delayStatistics.get(delay).getCountDelayed()/dequeueEventCount;
 		delayStatistics.get(delay).setPercentDelayed(newPercDelayed);
@@ -0,0 +1,119 @@
+package statistics;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import simulation.Priority;
+
+/**
+ * Column store of events: times, packet ids, types and priorities are kept in parallel primitive arrays,
+ * so no Event or Packet objects are created per event (14 bytes per event).<br>
+ * The columns grow in chunks of CHUNK_SIZE events, existing chunks are never copied. clear() keeps the chunks,
+ * a store which is filled again and again (see Statistics.readEventsFromFile()) allocates nothing after the first fill.
+ * Not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+public class EventStore {
+
+	public static final int CHUNK_SHIFT 	= 16;
+	public static final int CHUNK_SIZE 		= 1 << CHUNK_SHIFT;		//events per chunk
+
+	private static final int CHUNK_MASK 	= CHUNK_SIZE - 1;
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final byte UNKNOWN_PRIORITY 	= (byte)Priority.PACKET_PRIORITY_LOW.ordinal();		//stored for unknown events, whose priority is undefined
+
+	private long[][] 	times;
+	private int[][] 	packetIds;
+	private byte[][] 	eventTypes;
+	private byte[][] 	priorities;			//ordinal of the priority
+	private int 		chunks;				//allocated chunks
+	private int 		size;
+
+
+	public EventStore() {
+		this.times 		= new long[4][];
+		this.packetIds 	= new int[4][];
+		this.eventTypes = new byte[4][];
+		this.priorities = new byte[4][];
+		this.chunks 	= 0;
+		this.size 		= 0;
+	}//Constructor
+
+
+	/**
+	 * Appends an event
+	 * @param eventType the type of the event, may be Event.EVENT_TYPE_UNKNOWN
+	 * @param priority the priority of the event, ignored (may be null) if the type is unknown
+	 */
+	public void add(int eventType, Priority priority, int packetId, long time) {
+		int chunk 	= size >>> CHUNK_SHIFT;
+		int index 	= size & CHUNK_MASK;
+		if (chunk == chunks) {
+			addChunk();
+		}//if
+		times[chunk][index] 		= time;
+		packetIds[chunk][index] 	= packetId;
+		eventTypes[chunk][index] 	= (byte)eventType;
+		priorities[chunk][index] 	= (eventType == Event.EVENT_TYPE_UNKNOWN) ? UNKNOWN_PRIORITY : (byte)priority.ordinal();
+		size++;
+	}//add
+
+	private void addChunk() {
+		if (chunks == times.length) {
+			times 		= Arrays.copyOf(times, 2*chunks);
+			packetIds 	= Arrays.copyOf(packetIds, 2*chunks);
+			eventTypes 	= Arrays.copyOf(eventTypes, 2*chunks);
+			priorities 	= Arrays.copyOf(priorities, 2*chunks);
+		}//if
+		times[chunks] 		= new long[CHUNK_SIZE];
+		packetIds[chunks] 	= new int[CHUNK_SIZE];
+		eventTypes[chunks] 	= new byte[CHUNK_SIZE];
+		priorities[chunks] 	= new byte[CHUNK_SIZE];
+		chunks++;
+	}//addChunk
+
+	/**
+	 * Appends the next events of a reader
+	 * @param reader the reader, positioned before the first event to append
+	 * @param maxEvents the maximum number of events to append
+	 * @return the number of appended events, less than maxEvents at the end of the trace
+	 */
+	public int load(TraceReader reader, int maxEvents) throws IOException {
+		int loaded = 0;
+		while (loaded < maxEvents && reader.next()) {
+			add(reader.getEventType(), reader.getPriority(), reader.getPacketId(), reader.getTime());
+			loaded++;
+		}//while
+		return loaded;
+	}//load
+
+	/**
+	 * Removes all events, the chunks are kept for reuse
+	 */
+	public void clear() {
+		size = 0;
+	}//clear
+
+
+	public int size() {
+		return size;
+	}//size
+
+	public long getTime(int i) {
+		return times[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+	}//getTime
+
+	public int getPacketId(int i) {
+		return packetIds[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+	}//getPacketId
+
+	public int getEventType(int i) {
+		return eventTypes[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+	}//getEventType
+
+	public Priority getPriority(int i) {
+		return PRIORITIES[priorities[i >>> CHUNK_SHIFT][i & CHUNK_MASK]];
+	}//getPriority
+
+}//EventStore
@@ -0,0 +1,197 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import simulation.Priority;
+
+/**
+ * Reads a text trace in a single pass through memory mapped windows of the file.
+ * Line boundaries are found directly in the mapped bytes. Files larger than 2 GB are mapped
+ * window by window, a line crossing the end of a window is read from the next window,
+ * which starts at the beginning of that line. Lines are parsed by a TextEventParser, reading an event does not allocate.
+ * @author Marten Sigwart
+ *
+ */
+public class MappedTextTraceReader implements TraceReader {
+
+	public static final int DEFAULT_WINDOW_SIZE = 64*1024*1024;		//bytes
+
+	private static final int MAX_LINE_LENGTH	= 1024;				//bytes
+
+	private final FileChannel 	channel;
+	private final long 			end;				//file position after the last line read
+	private final int 			windowSize;
+
+	private MappedByteBuffer 	window;
+	private long 				windowStart;		//file position of the current window
+	private int 				position;			//position of the next line in the current window
+	private final byte[]		line;
+	private final TextEventParser parser;
+	private boolean				closed;
+
+	private int 		eventType;
+	private Priority 	priority;
+	private int 		packetId;
+	private long 		time;
+
+
+	/**
+	 * Opens a text trace file with the default window size
+	 * @param file path to the trace file
+	 */
+	public MappedTextTraceReader(String file) throws IOException {
+		this(file, DEFAULT_WINDOW_SIZE);
+	}//Constructor
+
+	/**
+	 * Opens a text trace file
+	 * @param file path to the trace file
+	 * @param windowSize number of bytes mapped at once, must be larger than a line
+	 */
+	public MappedTextTraceReader(String file, int windowSize) throws IOException {
+		this(file, 0L, Long.MAX_VALUE, windowSize);
+	}//Constructor
+
+	/**
+	 * Opens a range of a text trace file, e.g. a part of a trace analysed in parallel
+	 * @param file path to the trace file
+	 * @param start file position of the first line of the range
+	 * @param end file position after the last line of the range, is limited to the size of the file
+	 * @param windowSize number of bytes mapped at once, must be larger than a line
+	 */
+	public MappedTextTraceReader(String file, long start, long end, int windowSize) throws IOException {
+		if (windowSize <= MAX_LINE_LENGTH) {
+			throw new IllegalArgumentException("Window size must be larger than " + MAX_LINE_LENGTH + " bytes");
+		}//if
+		this.channel 	= FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		this.end 		= Math.min(end, channel.size());
+		this.windowSize = windowSize;
+		this.line 		= new byte[MAX_LINE_LENGTH];
+		this.parser 	= new TextEventParser();
+		this.closed 	= false;
+		map(Math.min(start, this.end));
+	}//Constructor
+
+
+	/**
+	 * Maps the window of the file starting at the specified file position
+	 */
+	private void map(long start) throws IOException {
+		long size 	= Math.min(windowSize, end - start);
+		window 		= channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		windowStart = start;
+		position 	= 0;
+	}//map
+
+
+	/**
+	 * Copies the next non empty line into the line buffer
+	 * @return the length of the line without line separator, -1 at the end of the file
+	 */
+	private int nextLine() throws IOException {
+		while (true) {
+			int limit = window.limit();
+			for (int i=position; i<limit; i++) {
+				if (window.get(i) == '\n') {
+					int length = copyLine(position, i);
+					position = i + 1;
+					if (length > 0) {
+						return length;
+					}//if
+				}//if
+			}//for
+
+			// No line separator in the rest of the window
+			if (windowStart + limit >= end) {
+				if (position < limit) {					//last line without line separator
+					int length = copyLine(position, limit);
+					position = limit;
+					if (length > 0) {
+						return length;
+					}//if
+				}//if
+				return -1;
+			}//if
+			if (position == 0) {
+				throw new IOException("Line at file position " + windowStart + " is longer than the mapped window");
+			}//if
+			map(windowStart + position);					//next window starts with the current line
+		}//while
+	}//nextLine
+
+
+	/**
+	 * Copies the bytes of a line without trailing carriage return into the line buffer
+	 * @return the length of the line
+	 */
+	private int copyLine(int start, int end) throws IOException {
+		if (end > start && window.get(end-1) == '\r') {
+			end--;
+		}//if
+		int length = end - start;
+		if (length > MAX_LINE_LENGTH) {
+			throw new IOException("Line at file position " + (windowStart + start) + " is too long");
+		}//if
+		window.position(start);
+		window.get(line, 0, length);
+		return length;
+	}//copyLine
+
+
+	@Override
+	public boolean next() throws IOException {
+		if (closed) {
+			return false;
+		}//if
+		int length = nextLine();
+		if (length < 0) {
+			return false;
+		}//if
+		if (parser.parse(line, 0, length)) {
+			eventType 	= parser.getEventType();
+			priority 	= parser.getPriority();
+			packetId 	= parser.getPacketId();
+			time 		= parser.getTime();
+		} else {
+			System.out.printf("MappedTextTraceReader: Could not read event from line --> \"%s\"\n",
+							  new String(line, 0, length, StandardCharsets.ISO_8859_1));
+			eventType 	= Event.EVENT_TYPE_UNKNOWN;			//counted as unknown event, the priority is not read
+			priority 	= Priority.PACKET_PRIORITY_LOW;
+		}//if
+		return true;
+	}//next
+
+
+	@Override
+	public int getEventType() {
+		return eventType;
+	}//getEventType
+
+	@Override
+	public Priority getPriority() {
+		return priority;
+	}//getPriority
+
+	@Override
+	public int getPacketId() {
+		return packetId;
+	}//getPacketId
+
+	@Override
+	public long getTime() {
+		return time;
+	}//getTime
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		window = null;
+		channel.close();
+	}//close
+
+}//MappedTextTraceReader
@@ -0,0 +1,234 @@
+package statistics;
+
+/**
+ * Open addressing hash table from packet id to the times of its ENQUEUE and DEQUEUE event.
+ * Keys and times are stored in primitive arrays (linear probing, backward shift deletion),
+ * so no objects are allocated per packet.
+ * @author Marten Sigwart
+ *
+ */
+public class PacketEventTable {
+
+	/**
+	 * Time of an event which has not been set
+	 */
+	public static final long NO_EVENT 	= Long.MIN_VALUE;
+
+	private static final int  FREE 		= -1;			//key of a free slot, packet ids are >= 0
+	private static final int  DEFAULT_CAPACITY = 1024;
+
+	private int[] 	keys;
+	private long[] 	times;			//Event.NUMBER_OF_EVENTS times per slot
+	private int 	mask;
+	private int 	shift;			//32 - log2(capacity)
+	private int 	size;
+
+
+	public PacketEventTable() {
+		this(DEFAULT_CAPACITY);
+	}//Constructor
+
+	/**
+	 * Creates a table
+	 * @param expectedSize number of packets the table holds without resizing
+	 */
+	public PacketEventTable(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Table management
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = 16;
+		while (capacity < 2L*expectedSize && capacity < (1 << 30)) {		//load factor 0.5
+			capacity <<= 1;
+		}//while
+		return capacity;
+	}//capacityFor
+
+	private void allocate(int capacity) {
+		keys 	= new int[capacity];
+		times 	= new long[capacity*Event.NUMBER_OF_EVENTS];
+		mask 	= capacity - 1;
+		shift 	= Integer.numberOfLeadingZeros(capacity) + 1;
+		size 	= 0;
+		for (int i=0; i<capacity; i++) {
+			keys[i] = FREE;
+		}//for
+	}//allocate
+
+	private int slotOf(int packetId) {
+		return (packetId*0x9E3779B9) >>> shift;		//fibonacci hashing, upper bits
+	}//slotOf
+
+	/**
+	 * @return the slot of the packet, -1 if the packet is not in the table
+	 */
+	private int find(int packetId) {
+		int slot = slotOf(packetId);
+		while (keys[slot] != FREE) {
+			if (keys[slot] == packetId) {
+				return slot;
+			}//if
+			slot = (slot + 1) & mask;
+		}//while
+		return -1;
+	}//find
+
+	/**
+	 * @return the slot of the packet, a new slot with no events if the packet is not in the table
+	 */
+	private int findOrInsert(int packetId) {
+		if (2*(size + 1) > keys.length) {
+			resize(keys.length << 1);
+		}//if
+		int slot = slotOf(packetId);
+		while (keys[slot] != FREE) {
+			if (keys[slot] == packetId) {
+				return slot;
+			}//if
+			slot = (slot + 1) & mask;
+		}//while
+		keys[slot] = packetId;
+		for (int i=0; i<Event.NUMBER_OF_EVENTS; i++) {
+			times[slot*Event.NUMBER_OF_EVENTS + i] = NO_EVENT;
+		}//for
+		size++;
+		return slot;
+	}//findOrInsert
+
+	private void resize(int capacity) {
+		int[] 	oldKeys 	= keys;
+		long[] 	oldTimes 	= times;
+		allocate(capacity);
+		for (int i=0; i<oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				copySlot(oldKeys, oldTimes, i);
+			}//if
+		}//for
+	}//resize
+
+	/**
+	 * Inserts the entry of another key/time array into this table
+	 */
+	private void copySlot(int[] fromKeys, long[] fromTimes, int from) {
+		int slot = slotOf(fromKeys[from]);
+		while (keys[slot] != FREE) {
+			slot = (slot + 1) & mask;
+		}//while
+		keys[slot] = fromKeys[from];
+		System.arraycopy(fromTimes, from*Event.NUMBER_OF_EVENTS, times, slot*Event.NUMBER_OF_EVENTS, Event.NUMBER_OF_EVENTS);
+		size++;
+	}//copySlot
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Access
+
+	public int size() {
+		return size;
+	}//size
+
+	public boolean contains(int packetId) {
+		return find(packetId) >= 0;
+	}//contains
+
+	/**
+	 * @return the time of the event of the packet, NO_EVENT if it has not been set
+	 */
+	public long getTime(int packetId, int eventType) {
+		int slot = find(packetId);
+		return (slot < 0) ? NO_EVENT : times[slot*Event.NUMBER_OF_EVENTS + eventType];
+	}//getTime
+
+	/**
+	 * Sets the time of the event of a packet, the packet is added if it is not in the table
+	 */
+	public void setTime(int packetId, int eventType, long time) {
+		int slot = findOrInsert(packetId);		//may resize the arrays
+		times[slot*Event.NUMBER_OF_EVENTS + eventType] = time;
+	}//setTime
+
+	/**
+	 * Removes a packet and its events
+	 * @return true if the packet was in the table
+	 */
+	public boolean remove(int packetId) {
+		int slot = find(packetId);
+		if (slot < 0) {
+			return false;
+		}//if
+
+		// Backward shift: move following entries of the probe sequence into the gap
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (keys[next] != FREE) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {		//entry may move to the gap
+				keys[gap] = keys[next];
+				System.arraycopy(times, next*Event.NUMBER_OF_EVENTS, times, gap*Event.NUMBER_OF_EVENTS, Event.NUMBER_OF_EVENTS);
+				gap = next;
+			}//if
+			next = (next + 1) & mask;
+		}//while
+		keys[gap] = FREE;
+		size--;
+		return true;
+	}//remove
+
+	/**
+	 * Removes all packets which have all events set in one sweep
+	 * @return the number of removed packets
+	 */
+	public int removeCompleted() {
+		int[] 	oldKeys 	= keys;
+		long[] 	oldTimes 	= times;
+		int 	oldSize 	= size;
+		allocate(capacityFor(size));
+		for (int i=0; i<oldKeys.length; i++) {
+			if (oldKeys[i] != FREE && !isComplete(oldTimes, i)) {
+				copySlot(oldKeys, oldTimes, i);
+			}//if
+		}//for
+		return oldSize - size;
+	}//removeCompleted
+
+	private static boolean isComplete(long[] fromTimes, int slot) {
+		for (int i=0; i<Event.NUMBER_OF_EVENTS; i++) {
+			if (fromTimes[slot*Event.NUMBER_OF_EVENTS + i] == NO_EVENT) {
+				return false;
+			}//if
+		}//for
+		return true;
+	}//isComplete
+
+	public void clear() {
+		for (int i=0; i<keys.length; i++) {
+			keys[i] = FREE;
+		}//for
+		size = 0;
+	}//clear
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Iteration over slots: for (int i=0; i<capacity(); i++) if (isUsed(i)) ...
+
+	public int capacity() {
+		return keys.length;
+	}//capacity
+
+	public boolean isUsed(int slot) {
+		return keys[slot] != FREE;
+	}//isUsed
+
+	public int keyAt(int slot) {
+		return keys[slot];
+	}//keyAt
+
+	public long timeAt(int slot, int eventType) {
+		return times[slot*Event.NUMBER_OF_EVENTS + eventType];
+	}//timeAt
+
+}//PacketEventTable
@@ -0,0 +1,186 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Summarizes a trace file in parallel on a ForkJoinPool.<br>
+ * The file is split into ranges of whole lines (text) or records (binary), every range is read by its own
+ * TraceReader into a TraceSummary. Summaries of neighbouring ranges are merged pairwise, which also matches
+ * the ENQUEUE and DEQUEUE events of packets whose events lie in different ranges.
+ * @author Marten Sigwart
+ *
+ */
+public class ParallelTraceAnalyzer {
+
+	public static final long MIN_RANGE_SIZE 	= 1L << 20;		//bytes
+	public static final long MAX_RANGE_SIZE 	= 64L << 20;	//bytes
+	public static final int  RANGES_PER_THREAD 	= 4;			//balances ranges of different speed
+
+	private final String 		file;
+	private final TraceFormat 	format;
+	private final ForkJoinPool 	pool;
+	private final int[] 		thresholds;		//delays in microseconds, see DelaySummary
+
+
+	/**
+	 * Creates an analyzer
+	 * @param file path to the trace file
+	 * @param format the format of the trace
+	 * @param pool the pool the ranges are read on
+	 * @param thresholds delays in microseconds for which the queue times above are counted
+	 */
+	public ParallelTraceAnalyzer(String file, TraceFormat format, ForkJoinPool pool, int... thresholds) {
+		this.file 		= file;
+		this.format 	= format;
+		this.pool 		= pool;
+		this.thresholds = thresholds.clone();
+	}//Constructor
+
+
+	/**
+	 * Reads the whole trace
+	 * @return the summary of the trace
+	 */
+	public TraceSummary analyze() throws IOException {
+		List<long[]> ranges = (format == TraceFormat.BINARY) ? splitRecords() : splitLines();
+		try {
+			return pool.invoke(new RangeTask(ranges, 0, ranges.size()));
+		} catch (RuntimeException e) {
+			// ForkJoinTask rethrows the exception of a worker wrapped in a new exception, so the IOException is searched
+			for (Throwable cause=e.getCause(); cause != null; cause=cause.getCause()) {
+				if (cause instanceof IOException) {
+					throw (IOException)cause;
+				}//if
+			}//for
+			throw e;
+		}//catch
+	}//analyze
+
+
+	/**
+	 * @return the size of the ranges the specified number of bytes is split into
+	 */
+	private long rangeSize(long bytes) {
+		long size = bytes/((long)pool.getParallelism()*RANGES_PER_THREAD);
+		return Math.max(MIN_RANGE_SIZE, Math.min(MAX_RANGE_SIZE, size));
+	}//rangeSize
+
+	/**
+	 * Splits a text trace into ranges of whole lines
+	 * @return start and end file position of every range
+	 */
+	private List<long[]> splitLines() throws IOException {
+		List<long[]> ranges = new ArrayList<long[]>();
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			long fileSize 	= channel.size();
+			long rangeSize 	= rangeSize(fileSize);
+			ByteBuffer buffer = ByteBuffer.allocate(4096);
+			long start = 0L;
+			while (start < fileSize) {
+				long end = Math.min(start + rangeSize, fileSize);
+				end = nextLineStart(channel, buffer, end, fileSize);
+				ranges.add(new long[] {start, end});
+				start = end;
+			}//while
+		}//try
+		return ranges;
+	}//splitLines
+
+	/**
+	 * @return the file position after the first line separator at or after the position, the file size if there is none
+	 */
+	private static long nextLineStart(FileChannel channel, ByteBuffer buffer, long position, long fileSize) throws IOException {
+		while (position < fileSize) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}//if
+			for (int i=0; i<read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}//if
+			}//for
+			position += read;
+		}//while
+		return fileSize;
+	}//nextLineStart
+
+	/**
+	 * Splits a binary trace into ranges of records
+	 * @return first record and number of records of every range
+	 */
+	private List<long[]> splitRecords() throws IOException {
+		List<long[]> ranges = new ArrayList<long[]>();
+		long records;
+		try (BinaryTraceReader reader = new BinaryTraceReader(file)) {
+			records = reader.getRecordCount();
+		}//try
+		long rangeRecords = rangeSize(records*BinaryTraceWriter.RECORD_SIZE)/BinaryTraceWriter.RECORD_SIZE;
+		for (long first=0; first<records; first+=rangeRecords) {
+			ranges.add(new long[] {first, Math.min(rangeRecords, records - first)});
+		}//for
+		return ranges;
+	}//splitRecords
+
+	private TraceReader openRange(long[] range) throws IOException {
+		switch (format) {
+			case BINARY:
+				return new BinaryTraceReader(file, range[0], range[1]);
+			default:
+				return new MappedTextTraceReader(file, range[0], range[1], MappedTextTraceReader.DEFAULT_WINDOW_SIZE);
+		}//switch
+	}//openRange
+
+
+	/**
+	 * Summarizes the ranges from index to index end, splits them in halves until one range is left
+	 */
+	private class RangeTask extends RecursiveTask<TraceSummary> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<long[]> 	ranges;
+		private final int 			from;
+		private final int 			to;
+
+		RangeTask(List<long[]> ranges, int from, int to) {
+			this.ranges = ranges;
+			this.from 	= from;
+			this.to 	= to;
+		}//Constructor
+
+		@Override
+		protected TraceSummary compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				RangeTask left 	= new RangeTask(ranges, from, middle);
+				RangeTask right = new RangeTask(ranges, middle, to);
+				left.fork();
+				TraceSummary rightSummary = right.compute();
+				return left.join().merge(rightSummary);
+			}//if
+			TraceSummary summary = new TraceSummary(thresholds);
+			if (to == from) {
+				return summary;						//empty trace
+			}//if
+			try (TraceReader reader = openRange(ranges.get(from))) {
+				while (reader.next()) {
+					summary.add(reader);
+				}//while
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}//catch
+			return summary;
+		}//compute
+	}//RangeTask
+
+}//ParallelTraceAnalyzer
@@ -0,0 +1,209 @@
+package statistics;
+
+import java.util.Arrays;
+
+/**
+ * Matches the ENQUEUE and DEQUEUE events of packets and returns their queue times.<br>
+ * Packet ids are increasing (Packet counter) and a packet is dequeued a bounded number of ids after it was enqueued,
+ * so the ENQUEUE times are kept in a circular array indexed by packet id, covering the window of ids
+ * [base, base + capacity). The window slides forward when an ENQUEUE beyond the window arrives, slots of
+ * matched packets are reused without a sweep. Events which do not fit into the window (a late ENQUEUE
+ * below base, a DEQUEUE read before its ENQUEUE, a packet still pending when the window slides) are kept
+ * in a small overflow table. The window grows when more than half of it is pending, i.e. the queue is
+ * longer than the window.
+ * Not thread safe.
+ * @author Marten Sigwart
+ *
+ */
+public class SlidingWindowMatcher {
+
+	public static final int DEFAULT_CAPACITY 	= 1 << 16;		//packet ids
+	public static final int MAX_CAPACITY 		= 1 << 24;		//packet ids
+
+	private long[] 				enqueueTimes;		//indexed by packet id & mask, NO_EVENT if the slot is free
+	private int 				mask;
+	private long 				base;				//lowest packet id of the window
+	private int 				windowSize;			//pending packets in the window
+	private final PacketEventTable overflow;		//pending events outside of the window
+
+
+	public SlidingWindowMatcher() {
+		this(DEFAULT_CAPACITY);
+	}//Constructor
+
+	/**
+	 * Creates a matcher
+	 * @param capacity initial size of the window in packet ids, a power of two
+	 */
+	public SlidingWindowMatcher(int capacity) {
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}//if
+		this.enqueueTimes 	= new long[capacity];
+		this.mask 			= capacity - 1;
+		this.overflow 		= new PacketEventTable();
+		clear();
+	}//Constructor
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Matching
+
+	/**
+	 * Adds an event of a packet
+	 * @param eventType Event.EVENT_TYPE_ENQUEUE or Event.EVENT_TYPE_DEQUEUE
+	 * @return the queue time in nanoseconds if the other event of the packet has been added before<br>
+	 * 		   PacketEventTable.NO_EVENT if the event is pending
+	 */
+	public long add(int eventType, int packetId, long time) {
+		if (eventType == Event.EVENT_TYPE_ENQUEUE) {
+			return enqueue(packetId, time);
+		} else {
+			return dequeue(packetId, time);
+		}//if
+	}//add
+
+	private long enqueue(int packetId, long time) {
+		if (overflow.size() > 0) {
+			long dequeueTime = overflow.getTime(packetId, Event.EVENT_TYPE_DEQUEUE);
+			if (dequeueTime != PacketEventTable.NO_EVENT) {		//DEQUEUE has been read first
+				overflow.remove(packetId);
+				return dequeueTime - time;
+			}//if
+		}//if
+		if (packetId < base) {
+			overflow.setTime(packetId, Event.EVENT_TYPE_ENQUEUE, time);		//late ENQUEUE
+			return PacketEventTable.NO_EVENT;
+		}//if
+		if (packetId >= base + enqueueTimes.length) {
+			slide(packetId);
+		}//if
+		int slot = packetId & mask;
+		if (enqueueTimes[slot] == PacketEventTable.NO_EVENT) {
+			windowSize++;
+		}//if
+		enqueueTimes[slot] = time;
+		return PacketEventTable.NO_EVENT;
+	}//enqueue
+
+	private long dequeue(int packetId, long time) {
+		if (inWindow(packetId)) {
+			int slot = packetId & mask;
+			long enqueueTime = enqueueTimes[slot];
+			if (enqueueTime != PacketEventTable.NO_EVENT) {
+				enqueueTimes[slot] = PacketEventTable.NO_EVENT;
+				windowSize--;
+				return time - enqueueTime;
+			}//if
+		}//if
+		long enqueueTime = overflow.getTime(packetId, Event.EVENT_TYPE_ENQUEUE);
+		if (enqueueTime != PacketEventTable.NO_EVENT) {
+			overflow.remove(packetId);
+			return time - enqueueTime;
+		}//if
+		overflow.setTime(packetId, Event.EVENT_TYPE_DEQUEUE, time);			//ENQUEUE has not been read yet
+		return PacketEventTable.NO_EVENT;
+	}//dequeue
+
+	private boolean inWindow(int packetId) {
+		return packetId >= base && packetId < base + enqueueTimes.length;
+	}//inWindow
+
+	/**
+	 * Moves the window so that it ends with the packet id, pending packets which leave the window are moved into the overflow table
+	 */
+	private void slide(int packetId) {
+		while (2*windowSize > enqueueTimes.length && enqueueTimes.length < MAX_CAPACITY) {
+			grow();
+		}//while
+		if (packetId < base + enqueueTimes.length) {
+			return;
+		}//if
+		long newBase = (long)packetId - enqueueTimes.length + 1;
+		for (long id=base; id<newBase && windowSize > 0; id++) {
+			int slot = (int)id & mask;
+			if (enqueueTimes[slot] != PacketEventTable.NO_EVENT) {
+				overflow.setTime((int)id, Event.EVENT_TYPE_ENQUEUE, enqueueTimes[slot]);
+				enqueueTimes[slot] = PacketEventTable.NO_EVENT;
+				windowSize--;
+			}//if
+		}//for
+		base = newBase;
+	}//slide
+
+	/**
+	 * Doubles the window, the pending packets keep their ids
+	 */
+	private void grow() {
+		long[] oldTimes = enqueueTimes;
+		enqueueTimes = new long[2*oldTimes.length];
+		mask = enqueueTimes.length - 1;
+		Arrays.fill(enqueueTimes, PacketEventTable.NO_EVENT);
+		for (long id=base; id<base + oldTimes.length; id++) {
+			enqueueTimes[(int)id & mask] = oldTimes[(int)id & (oldTimes.length - 1)];
+		}//for
+	}//grow
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Access
+
+	/**
+	 * @return the time of the pending event of the packet, NO_EVENT if the event is not pending
+	 */
+	public long getTime(int packetId, int eventType) {
+		if (eventType == Event.EVENT_TYPE_ENQUEUE && inWindow(packetId)
+				&& enqueueTimes[packetId & mask] != PacketEventTable.NO_EVENT) {
+			return enqueueTimes[packetId & mask];
+		}//if
+		return overflow.getTime(packetId, eventType);
+	}//getTime
+
+	/**
+	 * @return true if an event of the packet is pending
+	 */
+	public boolean contains(int packetId) {
+		return getTime(packetId, Event.EVENT_TYPE_ENQUEUE) != PacketEventTable.NO_EVENT
+				|| getTime(packetId, Event.EVENT_TYPE_DEQUEUE) != PacketEventTable.NO_EVENT;
+	}//contains
+
+	/**
+	 * Removes the pending events of a packet
+	 * @return true if an event of the packet was pending
+	 */
+	public boolean remove(int packetId) {
+		boolean removed = overflow.remove(packetId);
+		if (inWindow(packetId) && enqueueTimes[packetId & mask] != PacketEventTable.NO_EVENT) {
+			enqueueTimes[packetId & mask] = PacketEventTable.NO_EVENT;
+			windowSize--;
+			removed = true;
+		}//if
+		return removed;
+	}//remove
+
+	/**
+	 * @return the number of packets with a pending event
+	 */
+	public int size() {
+		return windowSize + overflow.size();
+	}//size
+
+	/**
+	 * @return the number of pending events outside of the window
+	 */
+	public int getOverflowSize() {
+		return overflow.size();
+	}//getOverflowSize
+
+	public int getCapacity() {
+		return enqueueTimes.length;
+	}//getCapacity
+
+	public void clear() {
+		Arrays.fill(enqueueTimes, PacketEventTable.NO_EVENT);
+		overflow.clear();
+		base 		= 0L;
+		windowSize 	= 0;
+	}//clear
+
+}//SlidingWindowMatcher
@@ -3,9 +3,12 @@ package statistics;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.io.*;
 
 
@@ -27,14 +30,27 @@ import simulation.Time;
 public class Statistics implements Observer {
 	
 	public static final int DEFAULT_DELAY = 200;//Microseconds
+	public static final int READ_CHUNK_SIZE = 100000;//events processed at once
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
 // Fields for file I/O
 	private String outputFile;
 	
-	private PrintWriter 	pWriter;
-	private FileInputStream	fStream;
-	private BufferedReader 	bReader;
+	private TraceFormat		traceFormat;
+	private TraceHeader		runParameters;		//written into the header of binary traces
+	private boolean			asyncTrace;			//trace is written by an AsyncTraceWriter
+	private volatile TraceWriter traceWriter;
+	private TraceReader		traceReader;
+	private EventStore		eventStore;			//events of the current chunk of the trace
+	private boolean			statisticsCollected;
+	private AnalysisMode	analysisMode;		//how the trace is analysed if the statistics are not collected inline
+	
+	
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%		
+// Fields for inline statistics (no trace)
+	private boolean							inlineStatistics;
+	private EnumMap<Priority, DelayAccumulator> delayAccumulators;
+	private AtomicIntegerArray				inlineEnqueueCounts;	//indexed by priority ordinal, written by all clients
 	
 	
 //%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%		
@@ -45,6 +61,7 @@ public class Statistics implements Observer {
 	private int 	totalEnEvents;
 	private int		totalDeEvents;
 	private double 	averageQueueTime;		//in nanoseconds
+	private DelaySummary totalQueueTimeSummary;	//queue times of all priorities
 	/*private double	delay;
 	private double 	percTotalDelayed;
 	private int		totalDelayed;
@@ -65,12 +82,34 @@ public class Statistics implements Observer {
 	 * @param outputFile path to output file (simulation trace)
 	 */
 	public Statistics(String outputFile) {
+		this(outputFile, TraceFormat.TEXT);
+	}//Constructor
+	
+	/**
+	 * Creates a new Statistics instance for tracing simulation events
+	 * @param outputFile path to output file (simulation trace)
+	 * @param traceFormat format of the output file
+	 */
+	public Statistics(String outputFile, TraceFormat traceFormat) {
 		this.outputFile = outputFile;
+		this.traceFormat = traceFormat;
+		this.runParameters = new TraceHeader();
+		this.asyncTrace = false;
+		this.statisticsCollected = false;
+		this.analysisMode = AnalysisMode.CHUNKED;
+		this.eventStore = new EventStore();
 		this.eventLists = new EnumMap<>(Priority.class);
 		for (Priority p: Priority.values()) {
 			this.eventLists.put(p, new EventList(p));
 		}//for
 		
+		this.inlineStatistics		= false;
+		this.delayAccumulators		= new EnumMap<>(Priority.class);
+		for (Priority p: Priority.values()) {
+			this.delayAccumulators.put(p, new DelayAccumulator());
+		}//for
+		this.inlineEnqueueCounts	= new AtomicIntegerArray(Priority.values().length);
+		
 		this.totalEnEvents			= 0;
 		this.totalDeEvents			= 0;
 		/*this.delay					= DEFAULT_DELAY;
@@ -78,10 +117,10 @@ public class Statistics implements Observer {
 		this.totalDelayed			= 0;
 		*/
 		this.averageQueueTime		= 0.0;
+		this.totalQueueTimeSummary	= new DelaySummary();
 		
 		this.totalDelayStats		= new HashMap<Integer, DelayStat>();
 		
-		initializeStatistics();
 		initDelayStatistics(DEFAULT_DELAY);
 		initDelayStatistics((int)(Simulation.MICSECONDS_PER_PACKET*1.1));
 		initDelayStatistics((int)(Simulation.MICSECONDS_PER_PACKET*1.5));
@@ -91,14 +130,13 @@ public class Statistics implements Observer {
 	
 	
 	/**
-	 * Should be called by Constructor.
-	 * Initializes various fields of Statistics object. Creates a new file if output file does not exist yet.
-	 * Creates PrintWriter to "print" events into output file.
-	 * Creates BufferedReader to read events from output file.
+	 * Should be called before the first event is triggered (SendConnection.start()).
+	 * Creates a new file if output file does not exist yet.
+	 * Creates the TraceWriter of the configured format to "print" events into output file.
 	 */
-	private void initializeStatistics() {
+	public synchronized void openTrace() {
+		if (traceWriter != null || inlineStatistics) return;		//no trace in inline mode
 		try {
-			//String newFileName = outputFile + "_" + numFiles + ".txt";
 			File statText = new File(this.outputFile);
 			
 			// Create File
@@ -110,16 +148,117 @@ public class Statistics implements Observer {
 	        	}//if
 	        }//if
 	        
-	        // Create Print Writer & Buffered Reader
-			this.pWriter = new PrintWriter( new FileOutputStream(this.outputFile) );
-			this.fStream = new FileInputStream(this.outputFile);
-			this.bReader = new BufferedReader( new InputStreamReader(this.fStream) );
+	        // Create Trace Writer
+	        if (asyncTrace) {
+	        	this.traceWriter = new AsyncTraceWriter(this.outputFile, traceFormat, runParameters);
+	        	return;
+	        }//if
+	        switch (traceFormat) {
+	        	case BINARY:
+	        		this.traceWriter = new BinaryTraceWriter(this.outputFile, runParameters);
+	        		break;
+	        	default:
+	        		this.traceWriter = new TextTraceWriter(this.outputFile);
+	        		break;
+	        }//switch
 		} catch (IOException e) {
 			e.printStackTrace();
-			System.out.printf("Statistics: Could not create PrintWriter\n");
+			System.out.printf("Statistics: Could not create TraceWriter\n");
 		}//catch
 		
-	}//initializeStatistics
+	}//openTrace
+	
+	/**
+	 * Flushes and closes the trace writer
+	 */
+	private synchronized void closeTrace() {
+		try {
+			if (traceWriter != null) {
+				traceWriter.close();
+			}//if
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.printf("Statistics: Could not close TraceWriter\n");
+		}//catch
+	}//closeTrace
+	
+	/**
+	 * Opens the TraceReader of the configured format to read events from output file.
+	 */
+	void openTraceReader() throws IOException {
+		switch (traceFormat) {
+			case BINARY:
+				this.traceReader = new BinaryTraceReader(this.outputFile);
+				break;
+			default:
+				this.traceReader = new MappedTextTraceReader(this.outputFile);
+				break;
+		}//switch
+	}//openTraceReader
+	
+	
+	public TraceFormat getTraceFormat() {
+		return traceFormat;
+	}//getTraceFormat
+	
+	/**
+	 * Sets the format of the trace, must be called before the trace is opened
+	 */
+	public void setTraceFormat(TraceFormat traceFormat) {
+		if (traceWriter != null) {
+			throw new IllegalStateException("Trace has already been opened");
+		}//if
+		this.traceFormat = traceFormat;
+	}//setTraceFormat
+	
+	public boolean isAsyncTrace() {
+		return asyncTrace;
+	}//isAsyncTrace
+	
+	/**
+	 * Enables asynchronous trace writing: every thread buffers its events (virtual threads in shared stripes) and a dedicated thread writes them into the trace.
+	 * Must be called before the trace is opened.
+	 */
+	public void setAsyncTrace(boolean asyncTrace) {
+		if (traceWriter != null) {
+			throw new IllegalStateException("Trace has already been opened");
+		}//if
+		this.asyncTrace = asyncTrace;
+	}//setAsyncTrace
+	
+	public boolean isInlineStatistics() {
+		return inlineStatistics;
+	}//isInlineStatistics
+	
+	/**
+	 * Enables inline statistics: queue times are accumulated at dequeue time and no trace is written.
+	 * Must be called before the trace is opened.
+	 */
+	public void setInlineStatistics(boolean inlineStatistics) {
+		if (traceWriter != null) {
+			throw new IllegalStateException("Trace has already been opened");
+		}//if
+		this.inlineStatistics = inlineStatistics;
+	}//setInlineStatistics
+	
+	public AnalysisMode getAnalysisMode() {
+		return analysisMode;
+	}//getAnalysisMode
+	
+	/**
+	 * Selects how the trace is analysed: chunk by chunk into the event lists, in parallel on all processors
+	 * or in a pipeline of threads (I/O, parse, match, aggregate). Is ignored if the statistics are collected inline.
+	 */
+	public void setAnalysisMode(AnalysisMode analysisMode) {
+		this.analysisMode = analysisMode;
+	}//setAnalysisMode
+	
+	/**
+	 * Sets the run parameters written into the header of binary traces, must be called before the trace is opened
+	 */
+	public void setRunParameters(TraceHeader runParameters) {
+		this.runParameters = runParameters;
+	}//setRunParameters
 	
 	
 	public void initDelayStatistics(int delay) {
@@ -131,9 +270,32 @@ public class Statistics implements Observer {
 			if (!eventLists.get(p).getDelayStatistics().containsKey(delay)) {	// no delay statistic for this delay has been initialized
 				eventLists.get(p).getDelayStatistics().put(delay, new DelayStat(delay));
 			}//if
+			addSummaryThreshold(eventLists.get(p).getQueueTimeSummary(), delay);
+			addSummaryThreshold(delayAccumulators.get(p).getSummary(), delay);
 		}//for
 	}//initDelayStatistics
 	
+	/**
+	 * Counts the queue times above the delay exactly, if no queue time has been summarized yet
+	 */
+	private static void addSummaryThreshold(DelaySummary summary, int delay) {
+		if (summary.getCount() == 0) {
+			summary.addThreshold(delay);
+		}//if
+	}//addSummaryThreshold
+	
+	/**
+	 * @return the initialized delays in microseconds
+	 */
+	private int[] getDelays() {
+		int[] delays = new int[totalDelayStats.size()];
+		int i = 0;
+		for (int delay: totalDelayStats.keySet()) {
+			delays[i++] = delay;
+		}//for
+		return delays;
+	}//getDelays
+	
 
 
 
@@ -148,19 +310,56 @@ public class Statistics implements Observer {
 	public void triggerEvent(Event event){
 		//Event event = new Event(eventType, time, packet);
 		//write to file
-		writeEventIntoFile(event);
+		writeEventIntoFile(event.getEventType(), event.getPacket().getPriority(), event.getPacket().getId(), event.getCreationTime());
 		//do some statistics work
 		//updateStatistics(event);			//DON'T!!! Too expensive, takes too long
 	}//createEvent
 	
 	/**
-	 * Writes the specified event into the output file and 
-	 * adds the event to corresponding event list for immediate statistics processing
-	 * @param event the event to be processed
+	 * Triggers an event of the simulation without creating an Event object
+	 * @param eventType the type of the event that occurred
+	 * @param time the time of the event in nanoseconds
+	 * @param packetId the id of the packet the event occurred with
+	 * @param priority the priority of the packet
+	 */
+	public void triggerEvent(int eventType, long time, int packetId, Priority priority) {
+		writeEventIntoFile(eventType, priority, packetId, time);
+	}//triggerEvent
+	
+	/**
+	 * Counts an enqueued packet in inline mode, called by the clients
+	 * @param priority the priority of the packet
+	 */
+	public void recordEnqueue(Priority priority) {
+		inlineEnqueueCounts.incrementAndGet(priority.ordinal());
+	}//recordEnqueue
+	
+	/**
+	 * Records the queue time of a dequeued packet in inline mode, called by the SendConnection only
+	 * @param priority the priority of the packet
+	 * @param queueTime the queue time in nanoseconds
 	 */
-	private synchronized void writeEventIntoFile(Event event){
+	public void recordQueueTime(Priority priority, long queueTime) {
+		delayAccumulators.get(priority).record(queueTime);
+	}//recordQueueTime
+	
+	/**
+	 * Writes the specified event into the output file.
+	 * Calls are only synchronized if the trace writer is not thread safe.
+	 */
+	private void writeEventIntoFile(int eventType, Priority priority, int packetId, long time){
 		//System.out.printf("Statistics: Writing event into file...");
-		pWriter.printf("%s\n", event.toString());
+		TraceWriter writer = traceWriter;
+		if (writer == null) {
+			return;
+		}//if
+		if (writer.isThreadSafe()) {
+			writer.writeEvent(eventType, priority, packetId, time);
+		} else {
+			synchronized (this) {
+				writer.writeEvent(eventType, priority, packetId, time);
+			}//synchronized
+		}//if
 		
 	}//writeEventIntoFile
 	
@@ -172,65 +371,51 @@ public class Statistics implements Observer {
 // Read methods to read events from an existing output file
 	
 	/**
-	 * Reads all events from the output file and saves them into the corresponding event lists
+	 * Reads the next events from the output file into the event store and saves them into the corresponding event lists
 	 * @return returns the number of lines read
 	 */
 	public int readEventsFromFile(int numOfLines){
 		int lines = 0;
 		
+		if (traceReader == null) {
+			return lines;			//trace has been read completely
+		}//if
+		
+		eventStore.clear();
 		try {
-
-			
 			System.out.printf("Reading tracefile...\n");
-			for (int i=0; i<numOfLines; i++) {
-				String line = bReader.readLine();
-				if (line == null) {
-					bReader.close();
-					System.out.printf("END OF FILE\n");
-					return lines;
-				}//if
-				Event e = Event.createEventFromString(line);
-				if (e == null) {
-					System.out.printf("Statistics: Could not read event from line --> \"%s\"", line);
-				}//if
-				else {
-					try {
-						if ( eventLists.get(e.getPacket().getPriority()).get(e.getPacket().getId()) == null) {
-							ArrayList<Event> newEventList = new ArrayList<Event>();
-							for (int j=0; j<Event.NUMBER_OF_EVENTS; j++) {
-								newEventList.add(j, null);
-							}//for
-							newEventList.set(e.getEventType(), e);		//replace existing null element
-							eventLists.get(e.getPacket().getPriority()).put(e.getPacket().getId(), newEventList);
-							
-//							if (e.getEventType() == Event.EVENT_TYPE_DEQUEUE) {
-//								System.out.printf("WARNING: Writing DEQUEUE event for packet %d first\n", e.getPacket().getId());
-//							}
-						} else {
-							eventLists.get(e.getPacket().getPriority()).set(e);		//replace existing null element
-//							if (e.getEventType() == Event.EVENT_TYPE_ENQUEUE) {
-//								System.out.printf("WARNING: Writing ENQUEUE event for packet %d second\n", e.getPacket().getId());
-//								System.out.printf("Packet %d: %s\n", e.getPacket().getId(), 
-//										eventLists.get(e.getPacket().getPriority()).get(e.getPacket().getId()) );
-//							}//if
-						}//if
-						updateStatistics(e);
-
-					} catch (NullPointerException ne) {
-						System.out.printf("Caught Null Pointer Exception\n");
-						return lines;
-					}//catch
-				}//else
-
-				lines++;
-			}//for
+			lines = eventStore.load(traceReader, numOfLines);
+			if (lines < numOfLines) {
+				traceReader.close();
+				traceReader = null;
+				System.out.printf("END OF FILE\n");
+			}//if
 		} catch (IOException e) {
 			e.printStackTrace();
-		}
-		return lines;	
+			lines = eventStore.size();
+		}//catch
+		addStoredEvents();
+		return lines;
 			
 	}//readEventsFromFile
 	
+	/**
+	 * Adds the events of the event store to the event lists of their priority
+	 */
+	private void addStoredEvents() {
+		for (int i=0; i<eventStore.size(); i++) {
+			int eventType = eventStore.getEventType(i);
+			if (eventType == Event.EVENT_TYPE_UNKNOWN) {
+				System.out.printf("Statistics: Could not read event %d\n", i);
+				continue;
+			}//if
+			EventList el = eventLists.get(eventStore.getPriority(i));
+			el.set(eventType, eventStore.getPacketId(i), eventStore.getTime(i));
+			el.updateEventListStats(eventType);
+		}//for
+		updateCounters();
+	}//addStoredEvents
+	
 	
 
 
@@ -246,9 +431,7 @@ public class Statistics implements Observer {
 		} else {
 			switch ((int)arg) {
 				case SendConnection.SERVER_EVENT_TERMINATED:
-					pWriter.close();
-					collectStatistics();
-					printStatistics();
+					closeTrace();				//statistics are collected and printed by the thread which runs the simulation
 					break;
 				default:
 					break;
@@ -261,99 +444,151 @@ public class Statistics implements Observer {
 // Various statistics methods
 	
 	/**
-	 * Called when the Observable(SendConnection) notifies about its termination
+	 * Called after the SendConnection has terminated (see ReplicationRunner)
 	 * Collects various statistics from the trace (output) file of the simulation
 	 */
-	public void collectStatistics() {
+	public synchronized void collectStatistics() {
+		if (statisticsCollected) return;		//trace has already been read
+		statisticsCollected = true;
+		closeTrace();							//may be called before the SendConnection notified its termination
 		System.out.printf("Collecting statistics...\n");
 		
-		int numOfLines = readNumberOfLines();
-		System.out.printf("Total lines to read : %d\n", numOfLines);
+		if (inlineStatistics) {
+			collectInlineStatistics();
+			return;
+		}//if
+		
+		switch (analysisMode) {
+			case PARALLEL:
+				collectParallelStatistics();
+				return;
+			case PIPELINE:
+				collectPipelineStatistics();
+				return;
+			default:
+				break;							//chunked analysis below
+		}//switch
+		
+		try {
+			openTraceReader();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.printf("Statistics: Could not open trace %s\n", outputFile);
+			return;
+		}//catch
 
-		if (numOfLines <= 100000) {
-			readEventsFromFile(numOfLines);
-			for (Priority p: Priority.values()) {
-				System.out.printf("Queue %s size: %d\n", p, eventLists.get(p).size());
-				for (Map.Entry<Integer, ArrayList<Event>> e: eventLists.get(p).getEvents().entrySet()) {
-					eventLists.get(p).addQueueTime(e.getKey());
-				}//for
-			}//for
-			updateAvrgQueueTime();
-			updateDelayStatistics();
+		// Single pass over the trace, READ_CHUNK_SIZE events at a time
+		int eventsRead = 0;
+		int readCycle = 1;
 
-		} else {
-			int eventsRead = 0;
-			int readCycle = 1;
-
-			do {
-				eventsRead = readEventsFromFile(100000);
-
-				System.out.printf("Read %d events, Part %d\n", eventsRead, readCycle++);
-				
-				for (Priority p: Priority.values()) {
-					System.out.printf("Queue %s size: %d\n", p, eventLists.get(p).size());
-					for (Map.Entry<Integer, ArrayList<Event>> e: eventLists.get(p).getEvents().entrySet()) {
-						eventLists.get(p).addQueueTime(e.getKey());
-					}//for
-				}//for
-				updateAvrgQueueTime();
-				updateDelayStatistics();
-				
-				System.out.printf("Delete processed events.\n");
-				deleteProcessedEvents();
-				
-				for (Priority p: Priority.values()) {
-					System.out.printf("%s events: %d\n", p, eventLists.get(p).size());
-				}//for
-			} while (eventsRead == 100000);
-		}//if
+		do {
+			eventsRead = collectChunk(READ_CHUNK_SIZE);
+			System.out.printf("Read %d events, Part %d\n", eventsRead, readCycle++);
+		} while (eventsRead == READ_CHUNK_SIZE);
 		//printEvents();
 		//avrgQueueTimePrio = getAverageQueueTime(Priority.PACKET_PRIORITY_HIGH);
 		//avrgQueueTimeNonPrio = getAverageQueueTime(Priority.PACKET_PRIORITY_LOW);
 	}//collectingStatistics
 
 	
-	private void deleteProcessedEvents() {
+	/**
+	 * Reads the next events of the trace and updates the statistics, one step of collectStatistics()
+	 * @param numOfEvents the number of events to read
+	 * @return the number of events read, less than numOfEvents at the end of the trace
+	 */
+	int collectChunk(int numOfEvents) {
+		int eventsRead = readEventsFromFile(numOfEvents);		//queue times are added while the events are read
+		
+		updateAvrgQueueTime();
+		updateDelayStatistics();
+		
 		for (Priority p: Priority.values()) {
-			EventList el = eventLists.get(p);
-			el.getQueueTimes().clear();
-			ArrayList<Integer> packetsToRemove = new ArrayList<Integer>();
-
-			for (Map.Entry<Integer, ArrayList<Event>> e: el.getEvents().entrySet()) {
-				if (e.getValue().get(Event.EVENT_TYPE_DEQUEUE) != null) {
-					packetsToRemove.add(e.getKey());
-				}//if
-			}//for
-			
-			for (int packetId: packetsToRemove) {
-				el.remove(packetId);
-			}//for
+			System.out.printf("%s pending events: %d\n", p, eventLists.get(p).size());
 		}//for
-	}//deleteProcessedEvents
+		return eventsRead;
+	}//collectChunk
+	
 	
 	/**
-	 * Reads the number of Lines in the tracefile
-	 * @return
+	 * Transfers the inline accumulators into the event lists, no trace is read
 	 */
-	private int readNumberOfLines() {
-		//Count lines
-		int lines = 0;
+	private void collectInlineStatistics() {
+		for (Priority p: Priority.values()) {
+			DelayAccumulator acc = delayAccumulators.get(p);
+			setQueueTimes(p, inlineEnqueueCounts.get(p.ordinal()), (int)acc.getCount(), acc);
+		}//for
+		updateCounters();
+		updateAvrgQueueTime();
+		updateDelayStatistics();
+	}//collectInlineStatistics
+	
+	/**
+	 * Reads the trace with a ParallelTraceAnalyzer on a new ForkJoinPool and transfers the summary into the event lists
+	 */
+	private void collectParallelStatistics() {
+		ForkJoinPool pool = new ForkJoinPool();
+		TraceSummary summary;
 		try {
-			while (bReader.readLine() != null) {
-				lines++;
-			}//while
-			bReader.close();
-			fStream.close();
-			
-			fStream = new FileInputStream(this.outputFile);
-			bReader = new BufferedReader(new InputStreamReader(fStream));
-			return lines;
+			summary = new ParallelTraceAnalyzer(outputFile, traceFormat, pool, getDelays()).analyze();
 		} catch (IOException e) {
 			e.printStackTrace();
-			return -1;
+			System.out.printf("Statistics: Could not read trace %s\n", outputFile);
+			return;
+		} finally {
+			pool.shutdown();
+		}//finally
+		
+		if (summary.getUnknownEvents() > 0) {
+			System.out.printf("Statistics: Could not read %d events\n", summary.getUnknownEvents());
+		}//if
+		for (Priority p: Priority.values()) {
+			setQueueTimes(p, (int)summary.getEventCount(p, Event.EVENT_TYPE_ENQUEUE), (int)summary.getEventCount(p, Event.EVENT_TYPE_DEQUEUE),
+					summary.getQueueTimes(p));
+			System.out.printf("%s packets without both events: %d\n", p, summary.getPendingCount(p));
+		}//for
+		updateCounters();
+		updateAvrgQueueTime();
+		updateDelayStatistics();
+	}//collectParallelStatistics
+	
+	/**
+	 * Reads the trace with a TracePipeline and transfers the results into the event lists
+	 */
+	private void collectPipelineStatistics() {
+		TracePipeline pipeline = new TracePipeline(outputFile, traceFormat, getDelays());
+		try {
+			pipeline.analyze();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.printf("Statistics: Could not read trace %s\n", outputFile);
+			return;
 		}//catch
-		//System.out.printf("Total file size to read (in bytes) : %d\n", fStream.available());
-	}//readNumberOfLines
+		pipeline.printStageTimes();
+		
+		if (pipeline.getUnknownEvents() > 0) {
+			System.out.printf("Statistics: Could not read %d events\n", pipeline.getUnknownEvents());
+		}//if
+		for (Priority p: Priority.values()) {
+			setQueueTimes(p, (int)pipeline.getEventCount(p, Event.EVENT_TYPE_ENQUEUE), (int)pipeline.getEventCount(p, Event.EVENT_TYPE_DEQUEUE),
+					pipeline.getQueueTimes(p));
+			System.out.printf("%s packets without both events: %d\n", p, pipeline.getPendingCount(p));
+		}//for
+		updateCounters();
+		updateAvrgQueueTime();
+		updateDelayStatistics();
+	}//collectPipelineStatistics
+	
+	/**
+	 * Sets the event counts and the queue times of the event list of a priority
+	 */
+	private void setQueueTimes(Priority p, int enqueueCount, int dequeueCount, DelayAccumulator acc) {
+		EventList el = eventLists.get(p);
+		el.setEnqueueEventCount(enqueueCount);
+		el.setDequeueEventCount(dequeueCount);
+		el.getQueueTimeSummary().merge(acc.getSummary());
+		el.getQueueTimes().add(acc.getQueueTimes());
+	}//setQueueTimes
+	
 	
 	/**
 	 * Updates some statistics. Is called when a new event is written to file
@@ -388,18 +623,14 @@ public class Statistics implements Observer {
 	
 	
 	/**
-	 * Updates the total average time
+	 * Updates the total average time, the mean of the queue times of all priorities
 	 */
 	private void updateAvrgQueueTime() {
-		this.averageQueueTime = 0.0;
+		this.totalQueueTimeSummary = new DelaySummary();
 		for (Priority p: Priority.values()) {
-			EventList el = eventLists.get(p);
-			if (this.averageQueueTime == 0.0) {
-				this.averageQueueTime = el.getAvrgQueueTime();
-			} else {
-				this.averageQueueTime = (double)((this.averageQueueTime+el.getAvrgQueueTime())/2);
-			}//if
+			this.totalQueueTimeSummary.merge(eventLists.get(p).getQueueTimeSummary());
 		}//for
+		this.averageQueueTime = this.totalQueueTimeSummary.getMean();
 	}//updateAvrgQueueTime
 
 	
@@ -431,6 +662,20 @@ public class Statistics implements Observer {
 		return averageQueueTime;
 	}//getAverageQueueTime
 	
+	/**
+	 * @return count, mean, variance, extremes and threshold counters of the queue times of a priority
+	 */
+	public DelaySummary getQueueTimeSummary(Priority p) {
+		return eventLists.get(p).getQueueTimeSummary();
+	}//getQueueTimeSummary
+	
+	/**
+	 * @return count, mean, variance, extremes and threshold counters of the queue times of all priorities
+	 */
+	public DelaySummary getTotalQueueTimeSummary() {
+		return totalQueueTimeSummary;
+	}//getTotalQueueTimeSummary
+	
 		
 	
 	
@@ -441,7 +686,7 @@ public class Statistics implements Observer {
 	 */
 	private int getEventCount(Priority p, int eventType) {
 		int count = 0;
-		for (int i=0; i<Packet.id; i++) {
+		for (int i=0; i<Packet.getIdCount(); i++) {
 			if (eventLists.get(p).get(i).get(eventType) != null) {
 				count++;
 			}//if
@@ -474,7 +719,7 @@ public class Statistics implements Observer {
 	public void printEvents() {
 		for (Priority p: Priority.values()) {
 			System.out.printf("\n%s:\n", p.toString());
-			for (int i=0; i<Packet.id; i++) {
+			for (int i=0; i<Packet.getIdCount(); i++) {
 				for (Event e: eventLists.get(p).get(i)) {
 					System.out.printf("%s\n", e.toString());
 				}//for
@@ -519,6 +764,16 @@ public class Statistics implements Observer {
 			System.out.printf("%s:\t%7.2f µs\n", p, (double)eventLists.get(p).getAvrgQueueTime()/Time.NANOSEC_PER_MICROSEC);
 		}//for
 		System.out.printf("Total:\t\t\t%7.2f µs\n\n", (this.averageQueueTime/Time.NANOSEC_PER_MICROSEC) );	//TODO only if both != 0
+		for (Priority p: Priority.values()) {
+			printSummary(p + ":\t", eventLists.get(p).getQueueTimeSummary());
+		}//for
+		System.out.printf("\n");
+		for (Priority p: Priority.values()) {
+			EventList el = eventLists.get(p);
+			System.out.printf("%s:\tp50 %d µs\tp99 %d µs\tp99.9 %d µs\n", p,
+					el.getQueueTimePercentile(50.0), el.getQueueTimePercentile(99.0), el.getQueueTimePercentile(99.9));
+		}//for
+		System.out.printf("\n");
 		// If 'µ' is not displayed correctly, go to Eclipse > Preferences > General > Workspace > Text File Encoding	
 	}//printQueueStatistics
 	
@@ -569,7 +824,48 @@ public class Statistics implements Observer {
 	}//printSimulationAnalysis
 	
 	
-	private void printStatTitle(String statTitle) {
+	/**
+	 * Prints standard deviation, minimum and maximum of the summarized queue times
+	 */
+	private static void printSummary(String prefix, DelaySummary summary) {
+		System.out.printf("%sstddev %.2f µs\tmin %.2f µs\tmax %.2f µs\n", prefix,
+				summary.getStandardDeviation()/Time.NANOSEC_PER_MICROSEC,
+				(double)summary.getMin()/Time.NANOSEC_PER_MICROSEC, (double)summary.getMax()/Time.NANOSEC_PER_MICROSEC);
+	}//printSummary
+	
+	/**
+	 * Prints the queue times of several simulation runs (replications) together, the summaries of the runs are merged
+	 * @param runs the statistics of the runs, collected
+	 */
+	public static void printReplicationStatistics(List<Statistics> runs) {
+		printStatTitle("All Runs:");
+		System.out.printf("%d simulation runs\n\n", runs.size());
+		DelaySummary total = new DelaySummary();
+		for (Priority p: Priority.values()) {
+			DelaySummary summary = new DelaySummary();
+			for (Statistics run: runs) {
+				summary.merge(run.getQueueTimeSummary(p));
+			}//for
+			total.merge(summary);
+			printReplicationSummary(p.toString(), summary);
+		}//for
+		System.out.printf("========================================================+===========\n");
+		printReplicationSummary("Total", total);
+		System.out.printf("\n");
+	}//printReplicationStatistics
+	
+	private static void printReplicationSummary(String title, DelaySummary summary) {
+		System.out.printf("%s:\t%9d packets\t%7.2f µs\n", title, summary.getCount(), summary.getMean()/Time.NANOSEC_PER_MICROSEC);
+		printSummary("\t\t\t", summary);
+		if (summary.hasThreshold(DEFAULT_DELAY)) {
+			long delayed = summary.getCountAbove(DEFAULT_DELAY);
+			System.out.printf("\t\t\tdelay > %d µs: %d (%.2f %%)\n", DEFAULT_DELAY, delayed,
+					(summary.getCount() > 0) ? 100.0*delayed/summary.getCount() : 0.0);
+		}//if
+	}//printReplicationSummary
+	
+	
+	private static void printStatTitle(String statTitle) {
 		//System.out.printf("\n=== %-12s ====================================================\n\n", statTitle);
 		System.out.printf("\n>>>>>>>>>> %-12s <<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n\n", statTitle);
 	}//printStatTitle
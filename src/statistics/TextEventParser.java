@@ -0,0 +1,147 @@
+package statistics;
+
+import simulation.Priority;
+
+/**
+ * Parses the events of a text trace directly from the bytes of a line, without creating Strings.<br>
+ * Accepts the lines written by TextTraceWriter (see Event.toString()), e.g.<br>
+ * "DEQUEUE  at (1234): Packet 56 - Priority PACKET_PRIORITY_HIGH"<br>
+ * Like the former regex parser of Event.createEventFromString(), the type and the priority are found anywhere
+ * in the line ignoring case, the first number is the time and the second number is the packet id.
+ * The result is kept in the parser like in a TraceReader, parse() does not allocate.
+ * Not thread safe, every reader uses its own parser.
+ * @author Marten Sigwart
+ *
+ */
+public class TextEventParser {
+
+	private static final byte[] DEQUEUE 		= {'D', 'E', 'Q', 'U', 'E', 'U', 'E'};
+	private static final byte[] ENQUEUE 		= {'E', 'N', 'Q', 'U', 'E', 'U', 'E'};
+	private static final byte[] PRIORITY_HIGH 	= Priority.PACKET_PRIORITY_HIGH.name().getBytes();
+
+	private int 		eventType;
+	private Priority 	priority;
+	private int 		packetId;
+	private long 		time;
+
+
+	/**
+	 * Parses a line
+	 * @param line bytes of the line (ASCII)
+	 * @param offset index of the first byte of the line
+	 * @param length length of the line without line separator
+	 * @return true if the line contains a time and a packet id, the type may be Event.EVENT_TYPE_UNKNOWN<br>
+	 * 		   false if the line could not be parsed
+	 */
+	public boolean parse(byte[] line, int offset, int length) {
+		int end = offset + length;
+
+		// Event type, usually the first word
+		if (startsWith(line, offset, end, DEQUEUE) || indexOf(line, offset, end, DEQUEUE) >= 0) {
+			eventType = Event.EVENT_TYPE_DEQUEUE;
+		} else if (startsWith(line, offset, end, ENQUEUE) || indexOf(line, offset, end, ENQUEUE) >= 0) {
+			eventType = Event.EVENT_TYPE_ENQUEUE;
+		} else {
+			eventType = Event.EVENT_TYPE_UNKNOWN;
+		}//if
+
+		// Priority, usually the last word
+		if (startsWith(line, end - PRIORITY_HIGH.length, end, PRIORITY_HIGH) || indexOf(line, offset, end, PRIORITY_HIGH) >= 0) {
+			priority = Priority.PACKET_PRIORITY_HIGH;
+		} else {
+			priority = Priority.PACKET_PRIORITY_LOW;
+		}//if
+
+		// Time and packet id, the first two numbers
+		int i = skipToDigit(line, offset, end);
+		if (i == end) {
+			return false;
+		}//if
+		long value = 0L;
+		for (; i<end && isDigit(line[i]); i++) {
+			if (value > (Long.MAX_VALUE - 9)/10) {
+				return false;						//overflow
+			}//if
+			value = value*10 + (line[i] - '0');
+		}//for
+		time = value;
+
+		i = skipToDigit(line, i, end);
+		if (i == end) {
+			return false;
+		}//if
+		value = 0L;
+		for (; i<end && isDigit(line[i]); i++) {
+			value = value*10 + (line[i] - '0');
+			if (value > Integer.MAX_VALUE) {
+				return false;						//overflow
+			}//if
+		}//for
+		packetId = (int)value;
+		return true;
+	}//parse
+
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}//isDigit
+
+	private static int skipToDigit(byte[] line, int from, int end) {
+		while (from < end && !isDigit(line[from])) {
+			from++;
+		}//while
+		return from;
+	}//skipToDigit
+
+	/**
+	 * @return true if the bytes at start equal the upper case word, ignoring case
+	 */
+	private static boolean startsWith(byte[] line, int start, int end, byte[] word) {
+		if (start < 0 || end - start < word.length) {
+			return false;
+		}//if
+		for (int i=0; i<word.length; i++) {
+			byte b = line[start + i];
+			if (b != word[i] && b != word[i] + ('a' - 'A')) {
+				return false;
+			}//if
+		}//for
+		return true;
+	}//startsWith
+
+	/**
+	 * @return the index of the upper case word in the line ignoring case, -1 if the line does not contain the word
+	 */
+	private static int indexOf(byte[] line, int start, int end, byte[] word) {
+		for (int i=start; i<=end - word.length; i++) {
+			if (startsWith(line, i, end, word)) {
+				return i;
+			}//if
+		}//for
+		return -1;
+	}//indexOf
+
+
+	/**
+	 * @return the type of the last parsed event, Event.EVENT_TYPE_UNKNOWN if the line contains no type
+	 */
+	public int getEventType() {
+		return eventType;
+	}//getEventType
+
+	public Priority getPriority() {
+		return priority;
+	}//getPriority
+
+	public int getPacketId() {
+		return packetId;
+	}//getPacketId
+
+	/**
+	 * @return the time of the last parsed event in nanoseconds
+	 */
+	public long getTime() {
+		return time;
+	}//getTime
+
+}//TextEventParser
@@ -0,0 +1,116 @@
+package statistics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import simulation.Priority;
+
+/**
+ * Writes events as text lines, one line per event (see Event.toString())
+ * @author Marten Sigwart
+ *
+ */
+public class TextTraceWriter implements TraceWriter {
+
+	public static final int MAX_RECORD_SIZE = 128;		//bytes, longest line including line separator
+
+	private static final byte[] ENQUEUE 	= ascii("ENQUEUE at (");
+	private static final byte[] DEQUEUE 	= ascii("DEQUEUE  at (");
+	private static final byte[] UNKNOWN 	= ascii("UNKNOWN at (");
+	private static final byte[] PACKET 		= ascii("): Packet ");
+	private static final byte[] PRIORITY 	= ascii(" - Priority ");
+	private static final byte[][] PRIORITY_NAMES = new byte[Priority.values().length][];
+	static {
+		for (Priority p: Priority.values()) {
+			PRIORITY_NAMES[p.ordinal()] = ascii(p.toString());
+		}//for
+	}//static
+
+	private final PrintWriter pWriter;
+
+
+	/**
+	 * Creates a text trace file, an existing file is truncated
+	 * @param file path to the trace file
+	 */
+	public TextTraceWriter(String file) throws IOException {
+		this.pWriter = new PrintWriter( new FileOutputStream(file) );
+	}//Constructor
+
+
+	private static byte[] ascii(String str) {
+		return str.getBytes(StandardCharsets.US_ASCII);
+	}//ascii
+
+
+	/**
+	 * Encodes one event as text line (same as Event.toString() plus line separator)
+	 * at the current position of the buffer, without creating a String
+	 * @param buffer buffer with at least MAX_RECORD_SIZE bytes remaining
+	 */
+	public static void encode(ByteBuffer buffer, int eventType, Priority priority, int packetId, long time) {
+		switch (eventType) {
+			case Event.EVENT_TYPE_DEQUEUE:
+				buffer.put(DEQUEUE);
+				break;
+			case Event.EVENT_TYPE_ENQUEUE:
+				buffer.put(ENQUEUE);
+				break;
+			default:
+				buffer.put(UNKNOWN);
+				break;
+		}//switch
+		putDecimal(buffer, time);
+		buffer.put(PACKET);
+		putDecimal(buffer, packetId);
+		buffer.put(PRIORITY);
+		buffer.put(PRIORITY_NAMES[priority.ordinal()]);
+		buffer.put((byte)'\n');
+	}//encode
+
+	/**
+	 * Writes the decimal digits of a number at the current position of the buffer
+	 */
+	private static void putDecimal(ByteBuffer buffer, long value) {
+		if (value == Long.MIN_VALUE) {
+			buffer.put(ascii(Long.toString(value)));
+			return;
+		}//if
+		if (value < 0) {
+			buffer.put((byte)'-');
+			value = -value;
+		}//if
+		int digits = 1;
+		for (long v = value; v >= 10; v /= 10) {
+			digits++;
+		}//for
+		int start = buffer.position();
+		for (int i=start+digits-1; i>=start; i--) {
+			buffer.put(i, (byte)('0' + value%10));
+			value /= 10;
+		}//for
+		buffer.position(start + digits);
+	}//putDecimal
+
+
+	@Override
+	public void writeEvent(int eventType, Priority priority, int packetId, long time) {
+		pWriter.printf("%s\n", Event.toString(eventType, time, packetId, priority));
+	}//writeEvent
+
+
+	@Override
+	public boolean isThreadSafe() {
+		return false;
+	}//isThreadSafe
+
+
+	@Override
+	public void close() {
+		pWriter.close();
+	}//close
+
+}//TextTraceWriter
@@ -0,0 +1,11 @@
+package statistics;
+
+/**
+ * Format of the simulation trace (output file).<br>
+ * TEXT: one line per event, see Event.toString()<br>
+ * BINARY: a TraceHeader followed by fixed width records, see BinaryTraceWriter
+ */
+public enum TraceFormat {
+	TEXT,
+	BINARY;
+}//TraceFormat
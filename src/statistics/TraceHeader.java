@@ -0,0 +1,140 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Header of a binary trace file. Holds the parameters of the simulation run
+ * and the number of records following the header.<br>
+ * Layout (little endian, HEADER_SIZE bytes):<br>
+ * magic (int), version (short), record size (short), record count (long), creation time (long),
+ * service time in ns (long), number of clients, number of priority clients, packets per client,
+ * client min interval, client max interval, server runtime, server speed, server queue size,
+ * simulation mode (int each), reserved bytes.
+ * @author Marten Sigwart
+ *
+ */
+public class TraceHeader {
+
+	public static final int 	MAGIC 			= 0x54504E53;	//"SNPT"
+	public static final short 	VERSION 		= 1;
+	public static final int 	HEADER_SIZE 	= 80;			//bytes, multiple of the record size
+
+	private long recordCount;
+	private long creationTime;			//milliseconds since epoch
+	private long serviceTime;			//nanoseconds per packet
+	private int  numClients;
+	private int  numPriorityClients;
+	private int  clientNumPackets;
+	private int  clientSendMinInterval;
+	private int  clientSendMaxInterval;
+	private int  serverRuntime;			//seconds
+	private int  serverSendSpeed;		//Mbs
+	private int  serverQueueSize;
+	private int  simulationMode;		//ordinal of SimulationMode
+
+
+	/**
+	 * Creates an empty header, used when no run parameters are available
+	 */
+	public TraceHeader() {
+		this(0, 0, 0, 0, 0, 0, 0, 0, 0L, 0);
+	}//Constructor
+
+	public TraceHeader(int numClients, int numPriorityClients, int clientNumPackets, int clientSendMinInterval, int clientSendMaxInterval,
+					   int serverRuntime, int serverSendSpeed, int serverQueueSize, long serviceTime, int simulationMode) {
+		this.recordCount			= 0L;
+		this.creationTime			= System.currentTimeMillis();
+		this.serviceTime			= serviceTime;
+		this.numClients				= numClients;
+		this.numPriorityClients		= numPriorityClients;
+		this.clientNumPackets		= clientNumPackets;
+		this.clientSendMinInterval	= clientSendMinInterval;
+		this.clientSendMaxInterval	= clientSendMaxInterval;
+		this.serverRuntime			= serverRuntime;
+		this.serverSendSpeed		= serverSendSpeed;
+		this.serverQueueSize		= serverQueueSize;
+		this.simulationMode			= simulationMode;
+	}//Constructor
+
+
+	/**
+	 * Writes the header at the current position of the buffer
+	 * @param buffer little endian buffer with at least HEADER_SIZE bytes remaining
+	 */
+	public void write(ByteBuffer buffer) {
+		int start = buffer.position();
+		buffer.putInt(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putShort((short)BinaryTraceWriter.RECORD_SIZE);
+		buffer.putLong(recordCount);
+		buffer.putLong(creationTime);
+		buffer.putLong(serviceTime);
+		buffer.putInt(numClients);
+		buffer.putInt(numPriorityClients);
+		buffer.putInt(clientNumPackets);
+		buffer.putInt(clientSendMinInterval);
+		buffer.putInt(clientSendMaxInterval);
+		buffer.putInt(serverRuntime);
+		buffer.putInt(serverSendSpeed);
+		buffer.putInt(serverQueueSize);
+		buffer.putInt(simulationMode);
+		while (buffer.position() - start < HEADER_SIZE) {
+			buffer.put((byte)0);		//reserved
+		}//while
+	}//write
+
+	/**
+	 * Reads a header from the current position of the buffer
+	 * @param buffer little endian buffer with at least HEADER_SIZE bytes remaining
+	 * @return the header
+	 * @throws IOException if the buffer does not contain a valid header
+	 */
+	public static TraceHeader read(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+			throw new IOException("Not a binary trace file");
+		}//if
+		short version = buffer.getShort();
+		short recordSize = buffer.getShort();
+		if (version != VERSION || recordSize != BinaryTraceWriter.RECORD_SIZE) {
+			throw new IOException("Unsupported binary trace version " + version + " (record size " + recordSize + ")");
+		}//if
+		TraceHeader header 			= new TraceHeader();
+		header.recordCount			= buffer.getLong();
+		header.creationTime			= buffer.getLong();
+		header.serviceTime			= buffer.getLong();
+		header.numClients			= buffer.getInt();
+		header.numPriorityClients	= buffer.getInt();
+		header.clientNumPackets		= buffer.getInt();
+		header.clientSendMinInterval= buffer.getInt();
+		header.clientSendMaxInterval= buffer.getInt();
+		header.serverRuntime		= buffer.getInt();
+		header.serverSendSpeed		= buffer.getInt();
+		header.serverQueueSize		= buffer.getInt();
+		header.simulationMode		= buffer.getInt();
+		buffer.position(start + HEADER_SIZE);
+		return header;
+	}//read
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Getters and Setters
+	public long getRecordCount()			{ return recordCount; }
+	public long getCreationTime()			{ return creationTime; }
+	public long getServiceTime()			{ return serviceTime; }
+	public int  getNumClients()				{ return numClients; }
+	public int  getNumPriorityClients()		{ return numPriorityClients; }
+	public int  getClientNumPackets()		{ return clientNumPackets; }
+	public int  getClientSendMinInterval()	{ return clientSendMinInterval; }
+	public int  getClientSendMaxInterval()	{ return clientSendMaxInterval; }
+	public int  getServerRuntime()			{ return serverRuntime; }
+	public int  getServerSendSpeed()		{ return serverSendSpeed; }
+	public int  getServerQueueSize()		{ return serverQueueSize; }
+	public int  getSimulationMode()			{ return simulationMode; }
+
+	public void setRecordCount(long recordCount) {
+		this.recordCount = recordCount;
+	}//setRecordCount
+
+}//TraceHeader
@@ -0,0 +1,516 @@
+package statistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.concurrent.locks.LockSupport;
+
+import simulation.MpscQueue;
+import simulation.Priority;
+import simulation.QueueType;
+
+/**
+ * Reads a trace file in four stages, every stage runs in its own thread:<br>
+ * I/O (reads blocks of bytes) -&gt; parse (decodes the events into an EventStore) -&gt;
+ * match (counts the events and matches them in a SlidingWindowMatcher per priority) -&gt;
+ * aggregate (adds the queue times to a DelayAccumulator per priority).<br>
+ * Stages are connected by bounded lock-free queues (MpscRingBuffer). Blocks and batches are passed on and returned
+ * through a second queue for reuse, DEPTH of them per connection, so disk and CPU work overlap
+ * while the memory stays bounded. Busy and waiting time is measured per stage, see printStageTimes().
+ * @author Marten Sigwart
+ *
+ */
+public class TracePipeline {
+
+	public static final int 	BLOCK_SIZE 		= 1 << 20;					//bytes, multiple of the binary record size
+	public static final int 	BATCH_SIZE 		= EventStore.CHUNK_SIZE;	//events or queue times
+	public static final int 	DEPTH 			= 4;						//blocks or batches between two stages
+
+	private static final int 	MAX_LINE_LENGTH = 1024;						//bytes
+	private static final long 	PARK_NANOS 		= 50000L;					//a waiting stage sleeps at most 50 us
+	private static final Priority[] PRIORITIES 	= Priority.values();
+
+	/**
+	 * Bytes read from the trace
+	 */
+	private static final class Block {
+		final byte[] 		data;
+		final ByteBuffer 	buffer;				//little endian view of data
+		int 				length;
+
+		Block(int size) {
+			data 	= new byte[size];
+			buffer 	= ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		}//Constructor
+	}//Block
+
+	/**
+	 * Queue times of matched packets, one array per priority so that they are aggregated by DelayAccumulator.recordAll()
+	 */
+	private static final class QueueTimes {
+		final long[][] 	times;					//nanoseconds, indexed by priority ordinal
+		final int[] 	sizes;					//queue times per priority
+		int 			size;					//queue times of all priorities
+
+		QueueTimes(int size) {
+			times 		= new long[PRIORITIES.length][size];
+			sizes 		= new int[PRIORITIES.length];
+		}//Constructor
+
+		void clear() {
+			Arrays.fill(sizes, 0);
+			size = 0;
+		}//clear
+	}//QueueTimes
+
+	// Marks the end of the trace in a queue
+	private static final Block 		END_OF_BLOCKS 	= new Block(0);
+	private static final EventStore END_OF_EVENTS 	= new EventStore();
+	private static final QueueTimes END_OF_TIMES 	= new QueueTimes(0);
+
+
+	private final String 		file;
+	private final TraceFormat 	format;
+
+	private final MpscQueue<Block> 		blocks;
+	private final MpscQueue<Block> 		freeBlocks;
+	private final MpscQueue<EventStore> events;
+	private final MpscQueue<EventStore> freeEvents;
+	private final MpscQueue<QueueTimes> times;
+	private final MpscQueue<QueueTimes> freeTimes;
+
+	private final Stage[] 		stages;
+	private volatile Throwable 	failure;
+
+	// Results, written by the match and the aggregate stage
+	private final long[][] 								eventCounts;		//indexed by priority ordinal and event type
+	private final SlidingWindowMatcher[] 				matchers;			//indexed by priority ordinal
+	private final EnumMap<Priority, DelayAccumulator> 	queueTimes;
+	private long 										unknownEvents;
+
+
+	/**
+	 * Creates a pipeline
+	 * @param file path to the trace file
+	 * @param format the format of the trace
+	 * @param thresholds delays in microseconds for which the queue times above are counted, see DelaySummary
+	 */
+	public TracePipeline(String file, TraceFormat format, int... thresholds) {
+		this.file 			= file;
+		this.format 		= format;
+		this.blocks 		= QueueType.RING_BUFFER.create(DEPTH + 1);			//one more for the end marker
+		this.freeBlocks 	= QueueType.RING_BUFFER.create(DEPTH);
+		this.events 		= QueueType.RING_BUFFER.create(DEPTH + 1);
+		this.freeEvents 	= QueueType.RING_BUFFER.create(DEPTH);
+		this.times 			= QueueType.RING_BUFFER.create(DEPTH + 1);
+		this.freeTimes 		= QueueType.RING_BUFFER.create(DEPTH);
+		for (int i=0; i<DEPTH; i++) {
+			freeBlocks.offer(new Block(BLOCK_SIZE));
+			freeEvents.offer(new EventStore());
+			freeTimes.offer(new QueueTimes(BATCH_SIZE));
+		}//for
+
+		this.eventCounts 	= new long[PRIORITIES.length][Event.NUMBER_OF_EVENTS];
+		this.matchers 		= new SlidingWindowMatcher[PRIORITIES.length];
+		this.queueTimes 	= new EnumMap<>(Priority.class);
+		for (Priority p: PRIORITIES) {
+			this.matchers[p.ordinal()] = new SlidingWindowMatcher();
+			this.queueTimes.put(p, new DelayAccumulator(thresholds));
+		}//for
+		this.unknownEvents 	= 0L;
+
+		this.stages = new Stage[] {new IoStage(), new ParseStage(), new MatchStage(), new AggregateStage()};
+	}//Constructor
+
+
+	/**
+	 * Reads the whole trace, the last stage runs in the calling thread
+	 */
+	public void analyze() throws IOException {
+		Thread[] threads = new Thread[stages.length - 1];
+		for (int i=0; i<threads.length; i++) {
+			threads[i] = new Thread(stages[i], "TracePipeline-" + stages[i].name);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}//for
+		stages[stages.length - 1].run();
+		for (Thread thread: threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading trace " + file, e);
+			}//catch
+		}//for
+
+		if (failure instanceof IOException) {
+			throw (IOException)failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException)failure;
+		} else if (failure != null) {
+			throw new RuntimeException(failure);
+		}//if
+	}//analyze
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Stages
+
+	/**
+	 * A stage of the pipeline, measures the time it waits for its queues
+	 */
+	private abstract class Stage implements Runnable {
+		final String 	name;
+		long 			busyNanos;
+		long 			waitNanos;
+
+		Stage(String name) {
+			this.name = name;
+		}//Constructor
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				process();
+			} catch (Throwable t) {
+				if (failure == null) {
+					failure = t;
+				}//if
+			} finally {
+				try {
+					finish();							//downstream stages stop, even after a failure
+				} finally {
+					busyNanos = System.nanoTime() - start - waitNanos;
+				}//finally
+			}//finally
+		}//run
+
+		/**
+		 * Processes the trace until the end marker of the upstream queue
+		 */
+		abstract void process() throws IOException;
+
+		/**
+		 * Passes the end marker downstream
+		 */
+		abstract void finish();
+
+		/**
+		 * @return the head of the queue, waits until the queue is not empty
+		 * @throws IllegalStateException if another stage failed
+		 */
+		<E> E take(MpscQueue<E> queue) {
+			E e = queue.poll();
+			if (e == null) {
+				long start = System.nanoTime();
+				while ((e = queue.poll()) == null) {
+					if (failure != null) {
+						throw new IllegalStateException("Pipeline stage failed", failure);
+					}//if
+					LockSupport.parkNanos(this, PARK_NANOS);
+				}//while
+				waitNanos += System.nanoTime() - start;
+			}//if
+			return e;
+		}//take
+
+		<E> void put(MpscQueue<E> queue, E e) {
+			while (!queue.offer(e)) {						//not reached, queues hold all blocks and batches
+				LockSupport.parkNanos(this, PARK_NANOS);
+			}//while
+		}//put
+	}//Stage
+
+
+	/**
+	 * Reads the trace into blocks, binary traces from the first record
+	 */
+	private final class IoStage extends Stage {
+
+		IoStage() {
+			super("io");
+		}//Constructor
+
+		@Override
+		void process() throws IOException {
+			long position 	= 0L;
+			long end 		= Long.MAX_VALUE;
+			if (format == TraceFormat.BINARY) {
+				try (BinaryTraceReader reader = new BinaryTraceReader(file)) {
+					end = TraceHeader.HEADER_SIZE + reader.getRecordCount()*BinaryTraceWriter.RECORD_SIZE;
+				}//try
+				position = TraceHeader.HEADER_SIZE;
+			}//if
+
+			try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+				end = Math.min(end, channel.size());
+				while (position < end) {
+					Block block = take(freeBlocks);
+					block.buffer.clear();
+					block.buffer.limit((int)Math.min(BLOCK_SIZE, end - position));
+					while (block.buffer.hasRemaining()) {
+						int read = channel.read(block.buffer, position + block.buffer.position());
+						if (read < 0) {
+							break;								//file has been truncated
+						}//if
+					}//while
+					block.length = block.buffer.position();
+					position += block.length;
+					put(blocks, block);
+					if (block.length == 0) {
+						break;
+					}//if
+				}//while
+			}//try
+		}//process
+
+		@Override
+		void finish() {
+			put(blocks, END_OF_BLOCKS);
+		}//finish
+	}//IoStage
+
+
+	/**
+	 * Decodes the events of the blocks into batches, text lines may continue in the next block
+	 */
+	private final class ParseStage extends Stage {
+		private final TextEventParser 	parser 	= new TextEventParser();
+		private final byte[] 			line 	= new byte[MAX_LINE_LENGTH];
+		private int 					lineLength;					//bytes of a line continued in the next block
+		private EventStore 				batch;
+
+		ParseStage() {
+			super("parse");
+		}//Constructor
+
+		@Override
+		void process() throws IOException {
+			lineLength = 0;
+			batch = take(freeEvents);
+			Block block;
+			while ((block = take(blocks)) != END_OF_BLOCKS) {
+				if (format == TraceFormat.BINARY) {
+					decodeRecords(block);
+				} else {
+					decodeLines(block);
+				}//if
+				put(freeBlocks, block);
+			}//while
+			if (lineLength > 0) {
+				parseLine(line, 0, lineLength);					//last line without line separator
+				lineLength = 0;
+			}//if
+		}//process
+
+		private void decodeRecords(Block block) {
+			ByteBuffer buffer = block.buffer;
+			buffer.position(0);
+			buffer.limit(block.length - block.length % BinaryTraceWriter.RECORD_SIZE);
+			while (buffer.hasRemaining()) {
+				int eventType 	= buffer.get();
+				int priority 	= buffer.get();
+				buffer.getShort();
+				int packetId 	= buffer.getInt();
+				long time 		= buffer.getLong();
+				if (eventType < 0 || eventType >= Event.NUMBER_OF_EVENTS || priority < 0 || priority >= PRIORITIES.length) {
+					add(Event.EVENT_TYPE_UNKNOWN, Priority.PACKET_PRIORITY_LOW, packetId, time);
+				} else {
+					add(eventType, PRIORITIES[priority], packetId, time);
+				}//if
+			}//while
+		}//decodeRecords
+
+		private void decodeLines(Block block) throws IOException {
+			byte[] data = block.data;
+			int start = 0;
+			for (int i=0; i<block.length; i++) {
+				if (data[i] != '\n') {
+					continue;
+				}//if
+				if (lineLength > 0) {								//line started in the previous block
+					appendLine(data, start, i);
+					parseLine(line, 0, lineLength);
+					lineLength = 0;
+				} else {
+					parseLine(data, start, i - start);
+				}//if
+				start = i + 1;
+			}//for
+			appendLine(data, start, block.length);
+		}//decodeLines
+
+		private void appendLine(byte[] data, int start, int end) throws IOException {
+			if (lineLength + end - start > MAX_LINE_LENGTH) {
+				throw new IOException("Line of trace " + file + " is too long");
+			}//if
+			System.arraycopy(data, start, line, lineLength, end - start);
+			lineLength += end - start;
+		}//appendLine
+
+		private void parseLine(byte[] data, int offset, int length) {
+			if (length > 0 && data[offset + length - 1] == '\r') {
+				length--;
+			}//if
+			if (length == 0) {
+				return;
+			}//if
+			if (parser.parse(data, offset, length)) {
+				add(parser.getEventType(), parser.getPriority(), parser.getPacketId(), parser.getTime());
+			} else {
+				System.out.printf("TracePipeline: Could not read event from line --> \"%s\"\n",
+								  new String(data, offset, length, StandardCharsets.ISO_8859_1));
+				add(Event.EVENT_TYPE_UNKNOWN, Priority.PACKET_PRIORITY_LOW, 0, 0L);
+			}//if
+		}//parseLine
+
+		private void add(int eventType, Priority priority, int packetId, long time) {
+			batch.add(eventType, priority, packetId, time);
+			if (batch.size() == BATCH_SIZE) {
+				put(events, batch);
+				batch = null;								//not passed on again if take() fails
+				batch = take(freeEvents);
+				batch.clear();
+			}//if
+		}//add
+
+		@Override
+		void finish() {
+			if (batch != null && batch.size() > 0) {
+				put(events, batch);
+			}//if
+			put(events, END_OF_EVENTS);
+		}//finish
+	}//ParseStage
+
+
+	/**
+	 * Counts the events and matches the ENQUEUE and DEQUEUE events of the packets
+	 */
+	private final class MatchStage extends Stage {
+		private QueueTimes batch;
+
+		MatchStage() {
+			super("match");
+		}//Constructor
+
+		@Override
+		void process() {
+			batch = take(freeTimes);
+			batch.clear();
+			EventStore store;
+			while ((store = take(events)) != END_OF_EVENTS) {
+				for (int i=0; i<store.size(); i++) {
+					int eventType = store.getEventType(i);
+					if (eventType == Event.EVENT_TYPE_UNKNOWN) {
+						unknownEvents++;
+						continue;
+					}//if
+					int p = store.getPriority(i).ordinal();
+					eventCounts[p][eventType]++;
+					long queueTime = matchers[p].add(eventType, store.getPacketId(i), store.getTime(i));
+					if (queueTime != PacketEventTable.NO_EVENT) {
+						add(p, queueTime);
+					}//if
+				}//for
+				store.clear();
+				put(freeEvents, store);
+			}//while
+		}//process
+
+		private void add(int priority, long queueTime) {
+			batch.times[priority][batch.sizes[priority]++] = queueTime;
+			batch.size++;
+			if (batch.sizes[priority] == BATCH_SIZE) {
+				put(times, batch);
+				batch = null;
+				batch = take(freeTimes);
+				batch.clear();
+			}//if
+		}//add
+
+		@Override
+		void finish() {
+			if (batch != null && batch.size > 0) {
+				put(times, batch);
+			}//if
+			put(times, END_OF_TIMES);
+		}//finish
+	}//MatchStage
+
+
+	/**
+	 * Adds the queue times to the accumulators of their priority
+	 */
+	private final class AggregateStage extends Stage {
+
+		AggregateStage() {
+			super("aggregate");
+		}//Constructor
+
+		@Override
+		void process() {
+			DelayAccumulator[] accumulators = new DelayAccumulator[PRIORITIES.length];
+			for (Priority p: PRIORITIES) {
+				accumulators[p.ordinal()] = queueTimes.get(p);
+			}//for
+			QueueTimes batch;
+			while ((batch = take(times)) != END_OF_TIMES) {
+				for (int p=0; p<accumulators.length; p++) {
+					accumulators[p].recordAll(batch.times[p], 0, batch.sizes[p]);
+				}//for
+				batch.clear();
+				put(freeTimes, batch);
+			}//while
+		}//process
+
+		@Override
+		void finish() {
+			//last stage
+		}//finish
+	}//AggregateStage
+
+
+//%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+// Results, valid after analyze()
+
+	public long getEventCount(Priority p, int eventType) {
+		return eventCounts[p.ordinal()][eventType];
+	}//getEventCount
+
+	/**
+	 * @return the queue times of the matched packets
+	 */
+	public DelayAccumulator getQueueTimes(Priority p) {
+		return queueTimes.get(p);
+	}//getQueueTimes
+
+	/**
+	 * @return the number of packets with only one event in the trace
+	 */
+	public int getPendingCount(Priority p) {
+		return matchers[p.ordinal()].size();
+	}//getPendingCount
+
+	public long getUnknownEvents() {
+		return unknownEvents;
+	}//getUnknownEvents
+
+	/**
+	 * Prints the time every stage was busy and waited for its queues
+	 */
+	public void printStageTimes() {
+		for (Stage stage: stages) {
+			System.out.printf("TracePipeline: Stage %-9s busy %7.1f ms, waiting %7.1f ms\n", stage.name,
+							  stage.busyNanos/1e6, stage.waitNanos/1e6);
+		}//for
+	}//printStageTimes
+
+}//TracePipeline
@@ -0,0 +1,37 @@
+package statistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import simulation.Priority;
+
+/**
+ * Reads the events of a trace file one by one.
+ * The reader works like a cursor: next() moves to the next event, the getters return its fields.
+ * @author Marten Sigwart
+ *
+ */
+public interface TraceReader extends Closeable {
+
+	/**
+	 * Moves to the next event of the trace
+	 * @return true if an event was read<br>
+	 * 		   false if the end of the trace is reached
+	 */
+	boolean next() throws IOException;
+
+	/**
+	 * @return the type of the current event, Event.EVENT_TYPE_UNKNOWN if it could not be read
+	 */
+	int getEventType();
+
+	Priority getPriority();
+
+	int getPacketId();
+
+	/**
+	 * @return the time of the current event in nanoseconds
+	 */
+	long getTime();
+
+}//TraceReader
@@ -0,0 +1,123 @@
+package statistics;
+
+import java.util.EnumMap;
+
+import simulation.Priority;
+
+/**
+ * Summary of the events of a part of a trace, per priority: event counts and the queue times
+ * of the packets whose ENQUEUE and DEQUEUE events are both in the part.<br>
+ * Packets with only one event in the part are kept as pending, merge() matches them with the pending
+ * packets of another part, so the summary of a trace does not depend on how the trace was split.
+ * Not thread safe, every part is summarized by one thread.
+ * @author Marten Sigwart
+ *
+ */
+public class TraceSummary {
+
+	private final EnumMap<Priority, long[]> 			eventCounts;		//indexed by event type
+	private final EnumMap<Priority, DelayAccumulator> 	queueTimes;
+	private final EnumMap<Priority, PacketEventTable> 	pending;			//packets with one event
+	private long 										unknownEvents;
+
+
+	/**
+	 * Creates an empty summary
+	 * @param thresholds delays in microseconds for which the queue times above are counted, see DelaySummary
+	 */
+	public TraceSummary(int... thresholds) {
+		this.eventCounts 	= new EnumMap<>(Priority.class);
+		this.queueTimes 	= new EnumMap<>(Priority.class);
+		this.pending 		= new EnumMap<>(Priority.class);
+		for (Priority p: Priority.values()) {
+			this.eventCounts.put(p, new long[Event.NUMBER_OF_EVENTS]);
+			this.queueTimes.put(p, new DelayAccumulator(thresholds));
+			this.pending.put(p, new PacketEventTable());
+		}//for
+		this.unknownEvents = 0L;
+	}//Constructor
+
+
+	/**
+	 * Adds the current event of a reader
+	 */
+	public void add(TraceReader reader) {
+		int eventType = reader.getEventType();
+		if (eventType == Event.EVENT_TYPE_UNKNOWN) {
+			unknownEvents++;
+			return;
+		}//if
+		Priority p = reader.getPriority();
+		eventCounts.get(p)[eventType]++;
+		match(p, reader.getPacketId(), eventType, reader.getTime());
+	}//add
+
+	/**
+	 * Records the queue time if the corresponding event of the packet is pending, otherwise the event becomes pending
+	 */
+	private void match(Priority p, int packetId, int eventType, long time) {
+		PacketEventTable table = pending.get(p);
+		int other = (eventType == Event.EVENT_TYPE_ENQUEUE) ? Event.EVENT_TYPE_DEQUEUE : Event.EVENT_TYPE_ENQUEUE;
+		long otherTime = table.getTime(packetId, other);
+		if (otherTime == PacketEventTable.NO_EVENT) {
+			table.setTime(packetId, eventType, time);
+			return;
+		}//if
+		table.remove(packetId);
+		long queueTime = (eventType == Event.EVENT_TYPE_DEQUEUE) ? time - otherTime : otherTime - time;
+		queueTimes.get(p).record(queueTime);
+	}//match
+
+	/**
+	 * Adds the summary of another part of the trace and matches the pending packets of both parts
+	 * @return this summary
+	 */
+	public TraceSummary merge(TraceSummary other) {
+		for (Priority p: Priority.values()) {
+			long[] counts 		= eventCounts.get(p);
+			long[] otherCounts 	= other.eventCounts.get(p);
+			for (int i=0; i<counts.length; i++) {
+				counts[i] += otherCounts[i];
+			}//for
+			queueTimes.get(p).add(other.queueTimes.get(p));
+
+			PacketEventTable otherPending = other.pending.get(p);
+			for (int slot=0; slot<otherPending.capacity(); slot++) {
+				if (otherPending.isUsed(slot)) {
+					for (int type=0; type<Event.NUMBER_OF_EVENTS; type++) {
+						long time = otherPending.timeAt(slot, type);
+						if (time != PacketEventTable.NO_EVENT) {
+							match(p, otherPending.keyAt(slot), type, time);
+						}//if
+					}//for
+				}//if
+			}//for
+		}//for
+		unknownEvents += other.unknownEvents;
+		return this;
+	}//merge
+
+
+	public long getEventCount(Priority p, int eventType) {
+		return eventCounts.get(p)[eventType];
+	}//getEventCount
+
+	/**
+	 * @return the queue times of the matched packets
+	 */
+	public DelayAccumulator getQueueTimes(Priority p) {
+		return queueTimes.get(p);
+	}//getQueueTimes
+
+	/**
+	 * @return the number of packets with only one event in the summarized part
+	 */
+	public int getPendingCount(Priority p) {
+		return pending.get(p).size();
+	}//getPendingCount
+
+	public long getUnknownEvents() {
+		return unknownEvents;
+	}//getUnknownEvents
+
+}//TraceSummary
@@ -0,0 +1,35 @@
+package statistics;
+
+import java.io.IOException;
+
+import simulation.Priority;
+
+/**
+ * Writes simulation events into a trace file.
+ * Implementations are not thread safe unless stated otherwise (see isThreadSafe()),
+ * Statistics synchronizes the calls.
+ * @author Marten Sigwart
+ *
+ */
+public interface TraceWriter {
+
+	/**
+	 * Writes one event into the trace
+	 * @param eventType the type of the event (Event.EVENT_TYPE_*)
+	 * @param priority the priority of the packet
+	 * @param packetId the id of the packet
+	 * @param time the time of the event in nanoseconds
+	 */
+	void writeEvent(int eventType, Priority priority, int packetId, long time);
+
+	/**
+	 * @return true if writeEvent() may be called by several threads without synchronization
+	 */
+	boolean isThreadSafe();
+
+	/**
+	 * Flushes and closes the trace, events written afterwards are ignored
+	 */
+	void close() throws IOException;
+
+}//TraceWriter
@@ -0,0 +1,172 @@
+package statistics;
+/*  Program to check DelaySummary: queue times are recorded into one summary
+    and, split randomly, into partial summaries which are merged in different
+    groupings. All groupings must give the statistics of the single summary,
+    counts, sums and extremes exactly, mean and variance up to rounding.
+    recordAll() must give the statistics of record() for every queue time.     */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class testDelaySummary {
+
+	static final int[] 	THRESHOLDS 	= {13, 18, 48, 200};		//microseconds
+	static final double TOLERANCE 	= 1e-9;						//relative, for mean and variance
+
+	static int mismatches = 0;
+
+	static void check(String what, boolean equal) {
+		if (!equal) {
+			mismatches++;
+			if (mismatches <= 20) {
+				System.out.println("MISMATCH " + what);
+			}//if
+		}//if
+	}//check
+
+	static boolean close(double expected, double actual) {
+		return Math.abs(expected - actual) <= TOLERANCE*Math.max(1.0, Math.abs(expected));
+	}//close
+
+	/**
+	 * Compares all statistics of a summary with the reference
+	 */
+	static void compare(String what, DelaySummary expected, DelaySummary actual) {
+		check(what + " count " + expected.getCount() + " != " + actual.getCount(), expected.getCount() == actual.getCount());
+		check(what + " sum " + expected.getSum() + " != " + actual.getSum(), expected.getSum() == actual.getSum());
+		check(what + " min " + expected.getMin() + " != " + actual.getMin(), expected.getMin() == actual.getMin());
+		check(what + " max " + expected.getMax() + " != " + actual.getMax(), expected.getMax() == actual.getMax());
+		check(what + " mean " + expected.getMean() + " != " + actual.getMean(), close(expected.getMean(), actual.getMean()));
+		check(what + " variance " + expected.getVariance() + " != " + actual.getVariance(),
+				close(expected.getVariance(), actual.getVariance()));
+		if (expected.getCount() == 0) {
+			return;						//an empty summary counts nothing above any threshold
+		}//if
+		for (int threshold: expected.getThresholds()) {
+			check(what + " threshold " + threshold + " not counted", actual.hasThreshold(threshold));
+			if (actual.hasThreshold(threshold)) {
+				check(what + " above " + threshold + " " + expected.getCountAbove(threshold) + " != " + actual.getCountAbove(threshold),
+						expected.getCountAbove(threshold) == actual.getCountAbove(threshold));
+			}//if
+		}//for
+	}//compare
+
+	/**
+	 * @return a queue time in nanoseconds: exponential, close to a threshold or (rarely) negative
+	 */
+	static long queueTime(Random random) {
+		switch (random.nextInt(8)) {
+			case 0:
+				return (THRESHOLDS[random.nextInt(THRESHOLDS.length)] + 1L)*1000L - 1 + random.nextInt(3);
+			case 1:
+				return -random.nextInt(5000);
+			default:
+				return (long)(-100000.0*Math.log(1.0 - random.nextDouble()));
+		}//switch
+	}//queueTime
+
+	static DelaySummary mergeLeft(List<DelaySummary> parts) {
+		DelaySummary merged = new DelaySummary();
+		for (DelaySummary part: parts) {
+			merged.merge(copy(part));
+		}//for
+		return merged;
+	}//mergeLeft
+
+	static DelaySummary mergeRight(List<DelaySummary> parts) {
+		DelaySummary merged = new DelaySummary();
+		for (int i=parts.size()-1; i>=0; i--) {
+			merged = copy(parts.get(i)).merge(merged);
+		}//for
+		return merged;
+	}//mergeRight
+
+	/**
+	 * Merges neighbours pairwise until one summary is left, as ParallelTraceAnalyzer does
+	 */
+	static DelaySummary mergeTree(List<DelaySummary> parts, int from, int to) {
+		if (to - from == 0) {
+			return new DelaySummary();
+		}//if
+		if (to - from == 1) {
+			return copy(parts.get(from));
+		}//if
+		int middle = (from + to) >>> 1;
+		return mergeTree(parts, from, middle).merge(mergeTree(parts, middle, to));
+	}//mergeTree
+
+	static DelaySummary copy(DelaySummary summary) {
+		return new DelaySummary().merge(summary);
+	}//copy
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+
+		/* Merging in different groupings */
+		for (int round=0; round<200; round++) {
+			int queueTimes 	= random.nextInt(100000);
+			int partCount 	= 1 + random.nextInt(16);
+			DelaySummary all = new DelaySummary(THRESHOLDS);
+			List<DelaySummary> parts = new ArrayList<DelaySummary>();
+			for (int i=0; i<partCount; i++) {
+				parts.add(new DelaySummary(THRESHOLDS));
+			}//for
+			for (int i=0; i<queueTimes; i++) {
+				long queueTime = queueTime(random);
+				all.record(queueTime);
+				parts.get(random.nextInt(partCount)).record(queueTime);
+			}//for
+			compare("left fold, round " + round, all, mergeLeft(parts));
+			compare("right fold, round " + round, all, mergeRight(parts));
+			compare("tree, round " + round, all, mergeTree(parts, 0, parts.size()));
+			Collections.shuffle(parts, random);
+			compare("shuffled tree, round " + round, all, mergeTree(parts, 0, parts.size()));
+		}//for
+
+		/* Thresholds: an empty summary is neutral, merged summaries keep the common thresholds */
+		DelaySummary a = new DelaySummary(13, 200);
+		DelaySummary b = new DelaySummary(200, 48);
+		for (int i=0; i<1000; i++) {
+			a.record(queueTime(random));
+			b.record(queueTime(random));
+		}//for
+		DelaySummary withEmpty = copy(a).merge(new DelaySummary(18));
+		compare("merge with empty", a, withEmpty);
+		check("merge with empty keeps thresholds", withEmpty.hasThreshold(13) && !withEmpty.hasThreshold(18));
+		DelaySummary common = copy(a).merge(b);
+		check("common thresholds", common.hasThreshold(200) && !common.hasThreshold(13) && !common.hasThreshold(48));
+		check("common count above 200", common.getCountAbove(200) == a.getCountAbove(200) + b.getCountAbove(200));
+
+		/* recordAll() of array ranges, shorter and longer than a block */
+		for (int round=0; round<200; round++) {
+			long[] queueTimes = new long[random.nextInt(4*DelaySummary.BLOCK_SIZE + 10)];
+			for (int i=0; i<queueTimes.length; i++) {
+				queueTimes[i] = queueTime(random);
+			}//for
+			int from 	= (queueTimes.length > 0) ? random.nextInt(Math.min(5, queueTimes.length)) : 0;
+			int to 		= Math.max(from, queueTimes.length - random.nextInt(5));
+			DelaySummary one = new DelaySummary(THRESHOLDS);
+			DelaySummary all = new DelaySummary(THRESHOLDS);
+			for (int i=from; i<to; i++) {
+				one.record(queueTimes[i]);
+			}//for
+			all.recordAll(queueTimes, from, to);
+			compare("recordAll, round " + round, one, all);
+			long above = 0L;
+			for (int i=from; i<to; i++) {
+				if (queueTimes[i]/1000 > THRESHOLDS[0]) {
+					above++;
+				}//if
+			}//for
+			check("recordAll, round " + round + " above " + THRESHOLDS[0] + " in whole microseconds",
+					to == from || all.getCountAbove(THRESHOLDS[0]) == above);
+		}//for
+
+		System.out.println("----------------------------------------------");
+		System.out.println("Mismatches: " + mismatches);
+		System.out.println("----------------------------------------------");
+	}//main
+
+}//testDelaySummary
@@ -0,0 +1,128 @@
+package statistics;
+/*  Program to compare SlidingWindowMatcher with a HashMap reference: reordered
+    event streams are added to both and every returned queue time and the
+    number of pending packets must be equal. The streams make the window slide
+    with pending packets, grow, and receive DEQUEUEs before their ENQUEUEs.     */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+public class testSlidingWindowMatcher {
+
+	static int mismatches = 0;
+
+	static void check(String what, long expected, long actual) {
+		if (expected != actual) {
+			mismatches++;
+			if (mismatches <= 20) {
+				System.out.println("MISMATCH " + what + ": " + expected + " != " + actual);
+			}//if
+		}//if
+	}//check
+
+	/**
+	 * Event of the stream, sorted by key
+	 */
+	static class TestEvent {
+		int 	type;
+		int 	packetId;
+		long 	time;
+		double 	key;
+
+		TestEvent(int type, int packetId, long time, double key) {
+			this.type 		= type;
+			this.packetId 	= packetId;
+			this.time 		= time;
+			this.key 		= key;
+		}//Constructor
+	}//TestEvent
+
+	/**
+	 * Creates the events of packets with increasing ids
+	 * @param queueLength maximum number of packets a DEQUEUE comes after its ENQUEUE
+	 * @param reorder maximum number of positions an event is moved, DEQUEUEs can come before their ENQUEUEs
+	 * @param gapProbability probability of a large gap between two packet ids
+	 */
+	static List<TestEvent> createEvents(Random random, int packets, int queueLength, double reorder, double gapProbability) {
+		List<TestEvent> events = new ArrayList<TestEvent>(2*packets);
+		int id = random.nextInt(1000);
+		for (int k=0; k<packets; k++) {
+			if (random.nextDouble() < gapProbability) {
+				id += 1 + random.nextInt(100000);
+			}//if
+			long enqueueTime = 1000L*k;
+			events.add(new TestEvent(Event.EVENT_TYPE_ENQUEUE, id, enqueueTime, k + reorder*random.nextDouble()));
+			events.add(new TestEvent(Event.EVENT_TYPE_DEQUEUE, id, enqueueTime + 1 + random.nextInt(1000000),
+					k + random.nextInt(queueLength + 1) + reorder*random.nextDouble()));
+			id++;
+		}//for
+		Collections.sort(events, new Comparator<TestEvent>() {
+			@Override
+			public int compare(TestEvent a, TestEvent b) {
+				return Double.compare(a.key, b.key);
+			}//compare
+		});
+		return events;
+	}//createEvents
+
+	/**
+	 * Adds the events to a matcher and to the reference and compares the results
+	 */
+	static void compare(String what, List<TestEvent> events, int capacity) {
+		SlidingWindowMatcher matcher = new SlidingWindowMatcher(capacity);
+		HashMap<Integer, Long> enqueues = new HashMap<Integer, Long>();
+		HashMap<Integer, Long> dequeues = new HashMap<Integer, Long>();
+		int dequeuesFirst 	= 0;
+		int maxOverflow 	= 0;
+		for (TestEvent e: events) {
+			long expected = PacketEventTable.NO_EVENT;
+			if (e.type == Event.EVENT_TYPE_ENQUEUE) {
+				Long dequeueTime = dequeues.remove(e.packetId);
+				if (dequeueTime != null) {
+					expected = dequeueTime - e.time;
+				} else {
+					enqueues.put(e.packetId, e.time);
+				}//if
+			} else {
+				Long enqueueTime = enqueues.remove(e.packetId);
+				if (enqueueTime != null) {
+					expected = e.time - enqueueTime;
+				} else {
+					dequeues.put(e.packetId, e.time);
+					dequeuesFirst++;
+				}//if
+			}//if
+			check(what + " packet " + e.packetId, expected, matcher.add(e.type, e.packetId, e.time));
+			check(what + " pending", enqueues.size() + dequeues.size(), matcher.size());
+			maxOverflow = Math.max(maxOverflow, matcher.getOverflowSize());
+		}//for
+		for (Integer id: enqueues.keySet()) {
+			check(what + " pending ENQUEUE " + id, enqueues.get(id), matcher.getTime(id, Event.EVENT_TYPE_ENQUEUE));
+		}//for
+		for (Integer id: dequeues.keySet()) {
+			check(what + " pending DEQUEUE " + id, dequeues.get(id), matcher.getTime(id, Event.EVENT_TYPE_DEQUEUE));
+		}//for
+		System.out.printf("%-28s %8d events, DEQUEUE first %6d, max overflow %6d, capacity %5d -> %7d\n",
+				what, events.size(), dequeuesFirst, maxOverflow, capacity, matcher.getCapacity());
+	}//compare
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		for (int round=0; round<5; round++) {
+			compare("in order",            createEvents(random, 100000, 0, 0.0, 0.0), 16);
+			compare("reordered",           createEvents(random, 100000, 8, 4.0, 0.0), 16);
+			compare("DEQUEUE before ENQUEUE", createEvents(random, 100000, 2, 20.0, 0.0), 64);
+			compare("long queue (grow)",   createEvents(random, 100000, 5000, 2.0, 0.0), 16);
+			compare("id gaps (slide)",     createEvents(random, 100000, 50, 30.0, 0.01), 64);
+		}//for
+
+		System.out.println("----------------------------------------------");
+		System.out.println("Mismatches: " + mismatches);
+		System.out.println("----------------------------------------------");
+	}//main
+
+}//testSlidingWindowMatcher
@@ -0,0 +1,130 @@
+package statistics;
+/*  Program to check that unreadable lines of text traces are counted as
+    unknown events: traces with a malformed first line, a malformed line in
+    between and a malformed last line are loaded into an EventStore and
+    analysed chunked, in parallel and in a pipeline. All good events must be
+    kept and all analyses must give the queue times of the trace without
+    the malformed lines.                                                     */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import simulation.Priority;
+
+public class testTraceReader {
+
+	static final int 	PACKETS 	= 1000;
+	static final String GARBAGE 	= "garbage line";
+
+	static int mismatches = 0;
+
+	static void check(String what, long expected, long actual) {
+		if (expected != actual) {
+			mismatches++;
+			if (mismatches <= 20) {
+				System.out.println("MISMATCH " + what + ": " + expected + " != " + actual);
+			}//if
+		}//if
+	}//check
+
+	/**
+	 * Writes a text trace of PACKETS packets, queue time of packet k is k nanoseconds
+	 * @param garbageAt indices of the events before which a malformed line is written, PACKETS*2 for the end
+	 */
+	static File createTrace(int... garbageAt) throws IOException {
+		File file = File.createTempFile("testTraceReader", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file, "ISO-8859-1")) {
+			int event = 0;
+			for (int k=0; k<PACKETS; k++) {
+				Priority p = (k % 3 == 0) ? Priority.PACKET_PRIORITY_HIGH : Priority.PACKET_PRIORITY_LOW;
+				for (int type: new int[] {Event.EVENT_TYPE_ENQUEUE, Event.EVENT_TYPE_DEQUEUE}) {
+					for (int g: garbageAt) {
+						if (g == event) {
+							out.println(GARBAGE);
+						}//if
+					}//for
+					long time = 1000L*k + ((type == Event.EVENT_TYPE_DEQUEUE) ? k : 0);
+					out.println(Event.toString(type, time, k, p));
+					event++;
+				}//for
+			}//for
+			for (int g: garbageAt) {
+				if (g == event) {
+					out.println(GARBAGE);
+				}//if
+			}//for
+		}//try
+		return file;
+	}//createTrace
+
+	/**
+	 * Loads the trace into an EventStore and compares the events with the written ones
+	 */
+	static void checkEventStore(String what, File file, int garbageLines) throws IOException {
+		EventStore store = new EventStore();
+		try (MappedTextTraceReader reader = new MappedTextTraceReader(file.getPath())) {
+			store.load(reader, Integer.MAX_VALUE);
+		}//try
+		check(what + " events", 2*PACKETS + garbageLines, store.size());
+		int unknown = 0;
+		int event 	= 0;
+		for (int i=0; i<store.size(); i++) {
+			if (store.getEventType(i) == Event.EVENT_TYPE_UNKNOWN) {
+				unknown++;
+				check(what + " priority of unknown event " + i, Priority.PACKET_PRIORITY_LOW.ordinal(), store.getPriority(i).ordinal());
+				continue;
+			}//if
+			int k = event/2;
+			Priority p = (k % 3 == 0) ? Priority.PACKET_PRIORITY_HIGH : Priority.PACKET_PRIORITY_LOW;
+			check(what + " packet id of event " + i, k, store.getPacketId(i));
+			check(what + " priority of event " + i, p.ordinal(), store.getPriority(i).ordinal());
+			event++;
+		}//for
+		check(what + " unknown events", garbageLines, unknown);
+	}//checkEventStore
+
+	/**
+	 * Analyses the trace in every mode and compares the queue times
+	 */
+	static void checkAnalysis(String what, File file) {
+		for (AnalysisMode mode: AnalysisMode.values()) {
+			Statistics stats = new Statistics(file.getPath(), TraceFormat.TEXT);
+			stats.setAnalysisMode(mode);
+			PrintStream out = System.out;
+			System.setOut(new PrintStream(new ByteArrayOutputStream()));		//progress of the analysis
+			try {
+				stats.collectStatistics();
+			} finally {
+				System.setOut(out);
+			}//finally
+			DelaySummary total = stats.getTotalQueueTimeSummary();
+			check(what + " " + mode + " queue times", PACKETS, total.getCount());
+			check(what + " " + mode + " sum of queue times", (long)PACKETS*(PACKETS - 1)/2, total.getSum());
+			check(what + " " + mode + " longest queue time", PACKETS - 1, total.getMax());
+			check(what + " " + mode + " high priority queue times", (PACKETS + 2)/3,
+					stats.getQueueTimeSummary(Priority.PACKET_PRIORITY_HIGH).getCount());
+		}//for
+	}//checkAnalysis
+
+	public static void main(String[] args) throws IOException {
+		String[] 	what 		= {"well formed", "malformed first line", "malformed line in between",
+								   "malformed last line", "malformed first and last line"};
+		int[][] 	garbageAt 	= {{}, {0}, {PACKETS + 1}, {2*PACKETS}, {0, 2*PACKETS}};
+
+		for (int i=0; i<what.length; i++) {
+			File file = createTrace(garbageAt[i]);
+			checkEventStore(what[i], file, garbageAt[i].length);
+			checkAnalysis(what[i], file);
+			file.delete();
+		}//for
+
+		System.out.println("----------------------------------------------");
+		System.out.println("Mismatches: " + mismatches);
+		System.out.println("----------------------------------------------");
+	}//main
+
+}//testTraceReader